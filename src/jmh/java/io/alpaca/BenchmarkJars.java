@@ -0,0 +1,200 @@
+package io.alpaca;
+
+import jdk.security.jarsigner.JarSigner;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
+
+/**
+ * Generate the jar files the benchmarks run on, so that no real jars have to be checked in.
+ * <ul>
+ *     <li>thin: a manifest, one pom.xml and a few classes, like most library jars</li>
+ *     <li>classes: 30k classes, to measure walking a big central directory</li>
+ *     <li>uberjar: 200 embedded pom.xml files, like a shaded application jar</li>
+ *     <li>signed: a jar signed with a generated key, its manifest has one digest per entry</li>
+ * </ul>
+ */
+final class BenchmarkJars {
+
+    static final String THIN = "thin";
+
+    static final String CLASSES = "classes";
+
+    static final String UBERJAR = "uberjar";
+
+    static final String SIGNED = "signed";
+
+    static final int CLASS_COUNT = 30_000;
+
+    static final int POM_COUNT = 200;
+
+    private static final String KEY_ALIAS = "alpaca";
+
+    private static final char[] KEY_PASSWORD = "alpaca".toCharArray();
+
+    // Some bytes standing in for a class file, the scan only looks at the entry names of classes
+    private static final byte[] CLASS_BYTES = new byte[512];
+
+    private BenchmarkJars() {
+    }
+
+    /**
+     * Make a new temp directory for the jars of a benchmark, to be deleted with {@link #delete(Path)}
+     */
+    static Path createTempDir() throws IOException {
+        return Files.createTempDirectory("alpaca-jmh-");
+    }
+
+    static void delete(final Path dir) throws IOException {
+        if (dir != null) {
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
+    /**
+     * Write the jar of the given kind into the directory
+     */
+    static Path create(final String kind, final Path dir) throws Exception {
+        switch (kind) {
+            case THIN:
+                return write(dir.resolve("thin-1.0.0.jar"), manifest("thin"), thinEntries("thin", 20));
+            case CLASSES:
+                return write(dir.resolve("classes-1.0.0.jar"), manifest("classes"), thinEntries("classes", CLASS_COUNT));
+            case UBERJAR:
+                return write(dir.resolve("uberjar-1.0.0.jar"), manifest("uberjar"), uberjarEntries());
+            case SIGNED:
+                final Path unsigned = write(dir.resolve("unsigned-1.0.0.jar"), manifest("signed"), thinEntries("signed", 2_000));
+                return sign(unsigned, dir.resolve("signed-1.0.0.jar"), dir);
+            default:
+                throw new IllegalArgumentException("Unknown benchmark jar " + kind);
+        }
+    }
+
+    /**
+     * A pom.xml with a parent and some dependencies, about the size of a usual library POM
+     */
+    static byte[] pom(final String groupId, final String artifactId, final String version) {
+        final StringBuilder pom = new StringBuilder();
+        pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n")
+                .append("         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/maven-v4_0_0.xsd\">\n")
+                .append("    <modelVersion>4.0.0</modelVersion>\n")
+                .append("    <parent>\n")
+                .append("        <groupId>").append(groupId).append("</groupId>\n")
+                .append("        <artifactId>parent</artifactId>\n")
+                .append("        <version>").append(version).append("</version>\n")
+                .append("    </parent>\n")
+                .append("    <groupId>").append(groupId).append("</groupId>\n")
+                .append("    <artifactId>").append(artifactId).append("</artifactId>\n")
+                .append("    <version>").append(version).append("</version>\n")
+                .append("    <name>").append(artifactId).append("</name>\n")
+                .append("    <description>Generated for the Alpaca benchmarks</description>\n")
+                .append("    <properties>\n")
+                .append("        <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>\n")
+                .append("    </properties>\n")
+                .append("    <dependencies>\n");
+        for (int i = 0; i < 10; i++) {
+            pom.append("        <dependency>\n")
+                    .append("            <groupId>org.example.dependency").append(i).append("</groupId>\n")
+                    .append("            <artifactId>dependency-").append(i).append("</artifactId>\n")
+                    .append("            <version>1.").append(i).append(".0</version>\n")
+                    .append("        </dependency>\n");
+        }
+        pom.append("    </dependencies>\n")
+                .append("</project>\n");
+        return pom.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Manifest manifest(final String artifactId) {
+        final Manifest manifest = new Manifest();
+        final Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Created-By", "Alpaca benchmarks");
+        attributes.put(Attributes.Name.IMPLEMENTATION_TITLE, artifactId);
+        attributes.put(Attributes.Name.IMPLEMENTATION_VERSION, "1.0.0");
+        attributes.put(Attributes.Name.IMPLEMENTATION_VENDOR_ID, "org.example");
+        attributes.putValue("Bundle-SymbolicName", "org.example." + artifactId);
+        attributes.putValue("Bundle-Version", "1.0.0");
+        return manifest;
+    }
+
+    private static Map<String, byte[]> thinEntries(final String artifactId, final int classCount) {
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        addPom(entries, "org.example", artifactId, "1.0.0");
+        for (int i = 0; i < classCount; i++) {
+            entries.put("org/example/" + artifactId + "/p" + i / 100 + "/Class" + i + ".class", CLASS_BYTES);
+        }
+        return entries;
+    }
+
+    private static Map<String, byte[]> uberjarEntries() {
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        addPom(entries, "org.example", "uberjar", "1.0.0");
+        for (int i = 1; i < POM_COUNT; i++) {
+            final String artifactId = "bundled-" + i;
+            addPom(entries, "org.example.bundled" + i, artifactId, "2." + i + ".0");
+            for (int c = 0; c < 20; c++) {
+                entries.put("org/example/bundled" + i + "/Class" + c + ".class", CLASS_BYTES);
+            }
+        }
+        return entries;
+    }
+
+    private static void addPom(final Map<String, byte[]> entries, final String groupId, final String artifactId, final String version) {
+        final String dir = JarIndex.MAVEN_DIR + groupId + "/" + artifactId;
+        entries.put(dir + JarIndex.POM_XML, pom(groupId, artifactId, version));
+        entries.put(dir + JarIndex.POM_PROPERTIES, ("groupId=" + groupId + "\nartifactId=" + artifactId + "\nversion=" + version + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Path write(final Path jar, final Manifest manifest, final Map<String, byte[]> entries) throws IOException {
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                output.putNextEntry(new JarEntry(entry.getKey()));
+                output.write(entry.getValue());
+                output.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Sign the jar with a key pair made by keytool, the JDK has no API to generate a self signed certificate
+     */
+    private static Path sign(final Path unsigned, final Path signed, final Path dir) throws Exception {
+        final Path keyStore = dir.resolve("benchmark.p12");
+        final String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        final Process process = new ProcessBuilder(keytool, "-genkeypair", "-keystore", keyStore.toString(), "-storetype", "PKCS12",
+                "-storepass", new String(KEY_PASSWORD), "-keypass", new String(KEY_PASSWORD), "-alias", KEY_ALIAS,
+                "-keyalg", "RSA", "-keysize", "2048", "-dname", "CN=Alpaca Benchmark", "-validity", "1")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool failed to generate a key pair in " + keyStore);
+        }
+
+        final KeyStore store = KeyStore.getInstance(keyStore.toFile(), KEY_PASSWORD);
+        final KeyStore.PrivateKeyEntry key = (KeyStore.PrivateKeyEntry) store.getEntry(KEY_ALIAS, new KeyStore.PasswordProtection(KEY_PASSWORD));
+        final JarSigner signer = new JarSigner.Builder(key).build();
+        try (ZipFile input = new ZipFile(unsigned.toFile());
+             OutputStream output = Files.newOutputStream(signed)) {
+            signer.sign(input, output);
+        }
+        Files.delete(unsigned);
+        return signed;
+    }
+}
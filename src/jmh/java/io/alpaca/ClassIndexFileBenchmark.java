@@ -0,0 +1,94 @@
+package io.alpaca;
+
+import io.alpaca.models.ClassEntries;
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up a class in an index file of generated classes, 1000 per archive in packages of 50.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassIndexFileBenchmark {
+
+    private static final int CLASSES_PER_ARCHIVE = 1000;
+
+    private static final int CLASSES_PER_PACKAGE = 50;
+
+    @Param({"100000", "1000000"})
+    public int classes;
+
+    private Path dir;
+
+    private ClassIndexFile index;
+
+    private String[] classNames;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkJars.createTempDir();
+        final ClassIndex classIndex = new ClassIndex();
+        for (int archive = 0; archive < classes / CLASSES_PER_ARCHIVE; archive++) {
+            final List<ZipArchiveEntry> entries = new ArrayList<>(CLASSES_PER_ARCHIVE);
+            for (int i = 0; i < CLASSES_PER_ARCHIVE; i++) {
+                entries.add(new ZipArchiveEntry(className(archive, i).replace('.', '/') + ".class"));
+            }
+            classIndex.add(new ManifestEntry("", "", "org.example", "archive" + archive, "1.0", "archive" + archive + ".jar",
+                    "archive" + archive, dir + "/archive" + archive + ".jar", null), entries);
+        }
+        final Path indexFile = dir.resolve("classes.idx");
+        ClassIndexFile.write(classIndex, indexFile);
+        index = ClassIndexFile.open(indexFile);
+
+        classNames = new String[1024];
+        for (int i = 0; i < classNames.length; i++) {
+            final int archive = (int) ((long) i * 7919 % (classes / CLASSES_PER_ARCHIVE));
+            classNames[i] = className(archive, i % CLASSES_PER_ARCHIVE);
+        }
+    }
+
+    private static String className(final int archive, final int i) {
+        return "org.example.archive" + archive + ".package" + i / CLASSES_PER_PACKAGE + ".Class" + i;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        BenchmarkJars.delete(dir);
+    }
+
+    @Benchmark
+    public ClassEntries lookup() {
+        return index.lookup(classNames[next++ & (classNames.length - 1)]);
+    }
+
+    @Benchmark
+    public ClassEntries lookupMissing() {
+        return index.lookup("org.example.archive0.package0.Missing");
+    }
+}
@@ -0,0 +1,92 @@
+package io.alpaca;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifying the entries of a jar, which replaced counting the POMs and looking up META-INF/build.metadata,
+ * and the whole detection of a single jar on top of it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarIndexBenchmark {
+
+    @Param({BenchmarkJars.THIN, BenchmarkJars.CLASSES, BenchmarkJars.UBERJAR, BenchmarkJars.SIGNED})
+    public String jar;
+
+    private Path dir;
+
+    private Path jarPath;
+
+    private ZipFile zipFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkJars.createTempDir();
+        jarPath = BenchmarkJars.create(jar, dir);
+        zipFile = new ZipFile(jarPath.toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        zipFile.close();
+        BenchmarkJars.delete(dir);
+    }
+
+    /**
+     * Reading the central directory
+     */
+    @Benchmark
+    public ZipFile openZipFile() throws IOException {
+        try (ZipFile opened = new ZipFile(jarPath.toFile())) {
+            return opened;
+        }
+    }
+
+    /**
+     * The fingerprint read from the central directory, which replaced the SHA-256 of the whole jar as cache key
+     */
+    @Benchmark
+    public String fingerprint() throws IOException {
+        return ArchiveFingerprint.of(jarPath);
+    }
+
+    @Benchmark
+    public HashCode sha256() throws IOException {
+        return MoreFiles.asByteSource(jarPath).hash(Hashing.sha256());
+    }
+
+    @Benchmark
+    public JarIndex index() {
+        return JarIndex.of(zipFile);
+    }
+
+    @Benchmark
+    public ManifestEntry scanJavaArchive() {
+        return Alpaca.scanJavaArchive("", "", jarPath.getFileName().toString(), jarPath.toString(), zipFile, JarIndex.of(zipFile));
+    }
+}
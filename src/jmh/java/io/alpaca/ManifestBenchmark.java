@@ -0,0 +1,90 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Manifest;
+
+/**
+ * Reading META-INF/MANIFEST.MF into a manifest entry and writing it out again.
+ * The manifest of the signed jar has a digest section per entry, the others only have main attributes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManifestBenchmark {
+
+    @Param({BenchmarkJars.THIN, BenchmarkJars.SIGNED})
+    public String jar;
+
+    private Path dir;
+
+    private byte[] manifestBytes;
+
+    private Manifest manifest;
+
+    private ManifestEntry manifestEntry;
+
+    private ManifestEntry uberJarEntry;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkJars.createTempDir();
+        final Path jarPath = BenchmarkJars.create(jar, dir);
+        try (ZipFile zipFile = new ZipFile(jarPath.toFile());
+             InputStream input = zipFile.getInputStream(JarIndex.of(zipFile).getManifest())) {
+            manifestBytes = IOUtils.toByteArray(input);
+        }
+        manifest = new Manifest(new ByteArrayInputStream(manifestBytes));
+        manifestEntry = Alpaca.getEntryFromJarManifest("", "", jarPath.getFileName().toString(), manifest);
+        uberJarEntry = new ManifestEntry(manifestEntry);
+        uberJarEntry.setBundles("META-INF/maven/org.example/bundled-1,META-INF/maven/org.example/bundled-2");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkJars.delete(dir);
+    }
+
+    @Benchmark
+    public Manifest parseManifest() throws IOException {
+        return new Manifest(new ByteArrayInputStream(manifestBytes));
+    }
+
+    @Benchmark
+    public ManifestEntry getEntryFromJarManifest() {
+        return Alpaca.getEntryFromJarManifest("", "", "benchmark.jar", manifest);
+    }
+
+    @Benchmark
+    public String toDeptopiaManifest() {
+        return manifestEntry.toDeptopiaManifest();
+    }
+
+    @Benchmark
+    public String toDeptopiaManifestForUberJar() {
+        return uberJarEntry.toDeptopiaManifestForUberJar();
+    }
+}
@@ -0,0 +1,49 @@
+package io.alpaca;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the coordinates of a pom.xml, the whole Maven model with {@link MavenXpp3Reader} against {@link PomInfo}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PomBenchmark {
+
+    private byte[] pom;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pom = BenchmarkJars.pom("org.example", "benchmark", "1.0.0");
+    }
+
+    @Benchmark
+    public Model readPom() throws IOException, XmlPullParserException {
+        return new MavenXpp3Reader().read(new ByteArrayInputStream(pom));
+    }
+
+    @Benchmark
+    public PomInfo readPomInfo() throws IOException, XmlPullParserException {
+        return PomInfo.readPom(new ByteArrayInputStream(pom));
+    }
+}
@@ -0,0 +1,142 @@
+package io.alpaca;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Telling archives from other files, done for every file of a scan, and unzipping a jar to disk, whole or only the
+ * entries the scan reads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UtilsBenchmark {
+
+    // The content types and file extensions of the baseline detection
+    private static final Set<String> JAVA_ARCHIVE_FORMATS = Set.of("application/x-java-archive", "jar", "war", "ear", "rar", "adm",
+            "hpi", "application/java-archive", "application/x-java-jnlp-file", "application/bz2", "application/x-gzip",
+            "text/javascript", "application/octet-stream", "text/x-ruby-script", "application/postscript", "text/x-python-script");
+
+    private static final Set<String> ARCHIVE_FORMATS = Set.of("application/vnd.rar", "application/zip", "application/gzip",
+            "application/x-tar");
+
+    @State(Scope.Benchmark)
+    public static class ArchiveTypeState {
+
+        private Path dir;
+
+        Path jar;
+
+        Path text;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            dir = BenchmarkJars.createTempDir();
+            jar = BenchmarkJars.create(BenchmarkJars.THIN, dir);
+            text = Files.writeString(dir.resolve("README.txt"), "Not an archive");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            BenchmarkJars.delete(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnzipState {
+
+        @Param({BenchmarkJars.THIN, BenchmarkJars.CLASSES, BenchmarkJars.UBERJAR})
+        public String jar;
+
+        private Path dir;
+
+        Path jarPath;
+
+        Path targetDir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            dir = BenchmarkJars.createTempDir();
+            jarPath = BenchmarkJars.create(jar, dir);
+        }
+
+        @Setup(Level.Invocation)
+        public void createTargetDir() throws IOException {
+            targetDir = Files.createTempDirectory(dir, "unzip-");
+        }
+
+        @TearDown(Level.Invocation)
+        public void deleteTargetDir() throws IOException {
+            BenchmarkJars.delete(targetDir);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            BenchmarkJars.delete(dir);
+        }
+    }
+
+    /**
+     * Baseline: the content type detection the scan used before {@link ArchiveType#of(Path)}
+     */
+    @Benchmark
+    public boolean probeContentTypeJavaArchive(final ArchiveTypeState state) {
+        return probeContentType(state.jar, JAVA_ARCHIVE_FORMATS);
+    }
+
+    /**
+     * Baseline: the content type detection the scan used before {@link ArchiveType#of(Path)}
+     */
+    @Benchmark
+    public boolean probeContentTypeArchive(final ArchiveTypeState state) {
+        return probeContentType(state.text, ARCHIVE_FORMATS);
+    }
+
+    @Benchmark
+    public ArchiveType archiveType(final ArchiveTypeState state) throws IOException {
+        return ArchiveType.of(state.jar);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<String> unzip(final UnzipState state) {
+        return Utils.unzip(state.targetDir.toString(), state.jarPath);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<String> unzipExtracted(final UnzipState state) {
+        return Utils.decompressArchive(state.jarPath, state.targetDir.toString(), ArchiveType.ZIP, JarIndex::isNestedArchive);
+    }
+
+    private static boolean probeContentType(final Path path, final Set<String> formats) {
+        try {
+            String contentType = Files.probeContentType(path);
+            if (contentType == null) {
+                contentType = com.google.common.io.Files.getFileExtension(path.toString());
+            }
+            return formats.contains(contentType);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
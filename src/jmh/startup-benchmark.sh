@@ -0,0 +1,55 @@
+#!/bin/bash
+# Time to first output of a manifest scan of one small jar, the usual CI invocation, for each startup option:
+#
+#   mvn -Pcds package && src/jmh/startup-benchmark.sh [<JAR_FILE_PATH>] [<RUNS>]
+#
+# The AppCDS archive is measured if target/alpaca.jsa exists (mvn -Pcds package), the native executable if target/alpaca
+# exists (mvn -Pnative package). The default jar is commons-io from the local Maven repository.
+set -euo pipefail
+
+cd "$(dirname "$0")/../.."
+app=target/alpaca-1.0.0.Final.jar
+jar=${1:-$HOME/.m2/repository/commons-io/commons-io/2.8.0/commons-io-2.8.0.jar}
+runs=${2:-10}
+java=${JAVA_HOME:+$JAVA_HOME/bin/}java
+scan=(manifest --format=ndjson "$jar")
+
+# Milliseconds from launch to the first line on stdout, the rest of the output is drained before returning.
+# Fails if the first line is not a manifest entry, e.g. a JVM warning that the AppCDS archive does not match the jar.
+first_output() {
+    local start end line=
+    start=$(date +%s%N)
+    {
+        read -r line || true
+        end=$(date +%s%N)
+        cat >/dev/null
+    } < <("$@" 2>/dev/null)
+    if [[ $line != "{"* ]]; then
+        echo "Unexpected first output of $*: $line" >&2
+        return 1
+    fi
+    echo $(((end - start) / 1000000))
+}
+
+# Median, min and max of the runs, after a first run which warms the page cache
+measure() {
+    local name=$1 times=() sorted
+    shift
+    first_output "$@" >/dev/null
+    for ((i = 0; i < runs; i++)); do
+        times+=("$(first_output "$@")")
+    done
+    sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+    printf '%-24s median %6d ms   min %6d ms   max %6d ms\n' "$name" "${sorted[runs / 2]}" "${sorted[0]}" "${sorted[runs - 1]}"
+}
+
+echo "Time to first output of: ${scan[*]}, $runs runs"
+measure "java -jar" "$java" -jar "$app" "${scan[@]}"
+measure "java -jar, C1 only" "$java" -XX:TieredStopAtLevel=1 -jar "$app" "${scan[@]}"
+if [ -f target/alpaca.jsa ]; then
+    measure "AppCDS" "$java" -XX:SharedArchiveFile=target/alpaca.jsa -jar "$app" "${scan[@]}"
+    measure "AppCDS, C1 only" "$java" -XX:SharedArchiveFile=target/alpaca.jsa -XX:TieredStopAtLevel=1 -jar "$app" "${scan[@]}"
+fi
+if [ -x target/alpaca ]; then
+    measure "native" target/alpaca "${scan[@]}"
+fi
@@ -1,34 +1,24 @@
 package io.alpaca;
 
-import com.google.common.collect.Sets;
 import io.alpaca.models.ManifestEntry;
-import org.apache.commons.io.FileUtils;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.jboss.logging.Logger;
 
-import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
-
-import static io.alpaca.Utils.decompressArchive;
-import static io.alpaca.Utils.isArchive;
-import static io.alpaca.Utils.isJavaArchive;
 
 /**
  * Generate manifest for an archive file or directory.
@@ -50,244 +40,236 @@ public class Alpaca {
     }
 
     public static Set<ManifestEntry> scanManifestEntry(final String productName, final String productVersion, final Path jarFilePath) {
-        final Set<ManifestEntry> manifests = Collections.synchronizedSet(Sets.newHashSet());
-
-        final String tmpDir = System.getProperty("java.io.tmpdir") + File.separator + "alpaca" + File.separator + ProcessHandle.current().pid() + File.separator + UUID.randomUUID() + File.separator;
-
-        // Check if the input path is a directory?
-        if (Files.isDirectory(jarFilePath) && !Files.isRegularFile(jarFilePath)) {
-            // input path is a directory
-            // Get a file list in the directory
-            try (Stream<Path> stream = Files.walk(jarFilePath)) {
-                stream.parallel()
-                        .filter(Files::isRegularFile)
-                        .filter(file -> !Pattern.compile(Pattern.quote("/\\.git/"), Pattern.CASE_INSENSITIVE).matcher(file.toString()).find())
-                        .forEach(file -> {
-                            final var manifestEntries = Alpaca.scanManifestEntry(productName, productVersion, file);
-                            manifests.addAll(manifestEntries);
-                        });
-            } catch (Exception e) {
-                LOG.errorf(e, "Exception occurred while list up files in %s\n", jarFilePath);
+        return scanManifestEntry(productName, productVersion, jarFilePath, new ScanOptions());
+    }
+
+    public static Set<ManifestEntry> scanManifestEntry(final String productName, final String productVersion, final Path jarFilePath,
+                                                       final ScanOptions options) {
+        return withScheduler(options, scheduler -> new ManifestScanner(productName, productVersion, options, scheduler).scan(jarFilePath).join());
+    }
+
+    /**
+     * Scan like {@link #scanManifestEntry(String, String, Path, ScanOptions)}, passing every manifest entry to the listener
+     * as soon as it is found instead of collecting all of them.
+     * <p/>
+     * The listener is called from many threads at once.
+     */
+    public static void scanManifestEntry(final String productName, final String productVersion, final Path jarFilePath,
+                                         final ScanOptions options, final Consumer<ManifestEntry> listener) {
+        withScheduler(options, scheduler -> new ManifestScanner(productName, productVersion, options, scheduler, listener).scan(jarFilePath).join());
+    }
+
+    /**
+     * Run a scan on the scheduler of the options, or on a new one which is closed once the scan is done
+     */
+    private static <T> T withScheduler(final ScanOptions options, final Function<ScanScheduler, T> scan) {
+        final ScanScheduler sharedScheduler = options.getScheduler();
+        final ScanScheduler scheduler = sharedScheduler != null ? sharedScheduler : ScanScheduler.create(options);
+        try {
+            return scan.apply(scheduler);
+        } finally {
+            if (sharedScheduler == null) {
+                scheduler.close();
             }
-        } else {
-            // Check if the file is an archive?
-            if (isArchive(jarFilePath)) {
-                // Decompress the archive
-                final var targetUnzipDir = tmpDir + jarFilePath;
-                // Call this method recursively for the archive
-                decompressArchive(jarFilePath, targetUnzipDir).stream()
-                        .parallel()
-                        .forEach(archiveEntry -> {
-                            manifests.addAll(Alpaca.scanManifestEntry(productName, productVersion, Paths.get(archiveEntry)));
-                        });
-            } else if (isJavaArchive(jarFilePath)) {
-                boolean scanMainJarManifestFinished = false;
-                ManifestEntry manifestEntry = null;
-
-                final var jarPathToFile = jarFilePath.toFile();
-                final var jarAbsolutePath = jarPathToFile.getAbsolutePath();
-                final var jarFileName = jarPathToFile.getName();
-
-                try (final JarFile jarFile = new JarFile(jarPathToFile)) {
-                    // Decompress the archive && Manifest bundled jars inside the input jar file
-                    final var targetUnzipDir = tmpDir + jarFilePath;
-                    decompressArchive(jarFilePath, targetUnzipDir).stream()
-                            .parallel()
-                            .forEach(archiveEntry -> {
-                                manifests.addAll(Alpaca.scanManifestEntry(productName, productVersion, Paths.get(archiveEntry)));
-                            });
-
-                    // check if the jar file has META-INF/MANIFEST
-                    Manifest manifest = jarFile.getManifest();
-                    if (manifest != null) {
-                        // read MANIFEST
-                        manifestEntry = getEntryFromJarManifest(productName, productVersion, jarFileName, manifest);
-                        if (manifestEntry != null) {
-                            manifestEntry.setPath(jarAbsolutePath);
-                        }
-                    }
+        }
+    }
 
-                    // check if the jar file has META-INF/build.metadata
-                    final var jarEntry = getBuildMetadataFile(jarFile);
-                    if (!scanMainJarManifestFinished && jarEntry != null) {
-                        // read build.metadata
-                        InputStream input = jarFile.getInputStream(jarEntry);
-                        Properties prop = new Properties();
-                        // load a properties file
-                        prop.load(input);
+    /**
+     * Make the manifest entry of a Java archive from its META-INF/MANIFEST.MF, META-INF/build.metadata and META-INF/maven/../pom.xml files.
+     * <p/>
+     * Bundled jars inside of the archive are not scanned here.
+     *
+     * @return the manifest entry or null if it could not be made
+     */
+    static ManifestEntry scanJavaArchive(final String productName, final String productVersion, final String jarFileName,
+                                         final String jarAbsolutePath, final ZipFile jarFile, final JarIndex index) {
+        return scanJavaArchive(productName, productVersion, jarFileName, jarAbsolutePath, jarFile, index, ScanStats.NONE);
+    }
 
-                        // build.groupId -> commons-httpclient
-                        final String groupId = prop.getProperty("build.groupId");
+    /**
+     * Same as {@link #scanJavaArchive(String, String, String, String, ZipFile, JarIndex)}, timing the MANIFEST.MF and pom.xml parsing
+     */
+    static ManifestEntry scanJavaArchive(final String productName, final String productVersion, final String jarFileName,
+                                         final String jarAbsolutePath, final ZipFile jarFile, final JarIndex index, final ScanStats stats) {
+        boolean scanMainJarManifestFinished = false;
+        ManifestEntry manifestEntry = null;
 
-                        // build.artifactId=camel-archetype-activemq
-                        final String artifactId = prop.getProperty("build.artifactId");
+        try {
+            // check if the jar file has META-INF/MANIFEST
+            final long manifestStart = System.nanoTime();
+            Manifest manifest = getManifest(jarFile, index);
+            if (manifest != null) {
+                // read MANIFEST
+                manifestEntry = getEntryFromJarManifest(productName, productVersion, jarFileName, manifest);
+                if (manifestEntry != null) {
+                    manifestEntry.setPath(jarAbsolutePath);
+                }
+                stats.record(ScanStats.Phase.MANIFEST, manifestStart);
+            }
 
-                        final String pomName = artifactId;
+            // check if the jar file has META-INF/build.metadata
+            final var jarEntry = index.getBuildMetadata();
+            if (!scanMainJarManifestFinished && jarEntry != null) {
+                // read build.metadata
+                Properties prop = new Properties();
+                try (InputStream input = jarFile.getInputStream(jarEntry)) {
+                    // load a properties file
+                    prop.load(input);
+                }
 
-                        // build.version=2.23.2.fuse-780036-redhat-00001
-                        // build.version.full -> 3.1.0.redhat-8
-                        final String version = prop.getProperty("build.version");
+                // build.groupId -> commons-httpclient
+                final String groupId = prop.getProperty("build.groupId");
 
-                        if (artifactId != null && version != null) {
-                            manifestEntry = new ManifestEntry(productName, productVersion, groupId, artifactId, version, jarFileName, pomName, jarAbsolutePath, null);
-                            scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
-                        }
-                    }
+                // build.artifactId=camel-archetype-activemq
+                final String artifactId = prop.getProperty("build.artifactId");
 
-                    // check whether it is uberjar or not
-                    int pomCountInJarFile = countPOMFiletoCheckUberJar(jarFile);
-                    if (pomCountInJarFile >= 2) {
-                        // to exclusive the main jar's pom.xml file from bundledjar entries
-                        String jarsMainPOMFile = null;
-
-                        // if it is uberjar
-                        // find pom.xml of the jar file among all pom.xml files including bundled jars in the file
-                        // read pom.xml
-                        Enumeration<JarEntry> entries = jarFile.entries();
-                        while (entries.hasMoreElements()) {
-                            JarEntry jarEntryForPOMFile = entries.nextElement();
-                            String jarEntryNameForPOMFile = jarEntryForPOMFile.getName();
-                            if (jarEntryNameForPOMFile.matches("META-INF/maven/.+/pom.xml")) {
-                                // jarEntryNameForPOMFile == META-INF/maven/org.slf4j/jcl-over-slf4j/pom.xml
-                                Model model = new MavenXpp3Reader().read(jarFile.getInputStream(jarEntryForPOMFile));
-                                String version = model.getVersion();
-                                if (version == null) {
-                                    version = model.getParent().getVersion();
-                                }
+                final String pomName = artifactId;
+
+                // build.version=2.23.2.fuse-780036-redhat-00001
+                // build.version.full -> 3.1.0.redhat-8
+                final String version = prop.getProperty("build.version");
+
+                if (artifactId != null && version != null) {
+                    manifestEntry = new ManifestEntry(productName, productVersion, groupId, artifactId, version, jarFileName, pomName, jarAbsolutePath, null);
+                    scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
+                }
+            }
 
-                                // if this pom.xml is for the jarFile
-                                Path path = Paths.get(jarEntryNameForPOMFile);
-                                String artifactName = path.getName(3).toString();
-                                if (jarsMainPOMFile == null || jarsMainPOMFile.length() < artifactName.length()) {
-                                    if (jarFileName.contains(artifactName)) {
-                                        // to exclusive the main jar's pom.xml file from bundledjar entries
-                                        jarsMainPOMFile = jarEntryNameForPOMFile;
-                                        String groupId = model.getGroupId();
-                                        if (groupId != null && model.getParent() != null) {
-                                            groupId = model.getParent().getGroupId();
-                                        }
-                                        if (groupId == null) {
-                                            groupId = manifestEntry.getGroupId();
-                                        }
-                                        String artifactId = model.getArtifactId();
-                                        String pomName = model.getName();
-                                        if (artifactId != null && version != null) {
-                                            if (pomName == null || pomName.contains("${")) {
-                                                pomName = artifactId;
-                                            }
-                                            manifestEntry = new ManifestEntry(productName, productVersion, groupId, artifactId, version, jarFileName, pomName, jarAbsolutePath, null);
-                                        }
-                                    }
+            // check whether it is uberjar or not
+            final List<ZipArchiveEntry> pomFiles = index.getPomFiles();
+            int pomCountInJarFile = pomFiles.size();
+            if (pomCountInJarFile >= 2) {
+                // to exclusive the main jar's pom.xml file from bundledjar entries
+                String jarsMainPOMFile = null;
+
+                // if it is uberjar
+                // find pom.xml of the jar file among all pom.xml files including bundled jars in the file
+                // read pom.xml of the candidates only, the others are read once below
+                final Map<ZipArchiveEntry, PomInfo> candidatePoms = new HashMap<>();
+                for (ZipArchiveEntry jarEntryForPOMFile : pomFiles) {
+                    String jarEntryNameForPOMFile = jarEntryForPOMFile.getName();
+                    // jarEntryNameForPOMFile == META-INF/maven/org.slf4j/jcl-over-slf4j/pom.xml
+
+                    // if this pom.xml is for the jarFile
+                    Path path = Paths.get(jarEntryNameForPOMFile);
+                    String artifactName = path.getName(3).toString();
+                    if (jarsMainPOMFile == null || jarsMainPOMFile.length() < artifactName.length()) {
+                        if (jarFileName.contains(artifactName)) {
+                            final long pomStart = System.nanoTime();
+                            final PomInfo pom = PomInfo.readPom(jarFile, jarEntryForPOMFile);
+                            stats.record(ScanStats.Phase.POM, pomStart);
+                            candidatePoms.put(jarEntryForPOMFile, pom);
+                            String version = pom.getVersion();
+
+                            // to exclusive the main jar's pom.xml file from bundledjar entries
+                            jarsMainPOMFile = jarEntryNameForPOMFile;
+                            String groupId = pom.getGroupId();
+                            if (groupId != null && pom.hasParent()) {
+                                groupId = pom.getParentGroupId();
+                            }
+                            if (groupId == null) {
+                                groupId = manifestEntry.getGroupId();
+                            }
+                            String artifactId = pom.getArtifactId();
+                            String pomName = pom.getName();
+                            if (artifactId != null && version != null) {
+                                if (pomName == null || pomName.contains("${")) {
+                                    pomName = artifactId;
                                 }
+                                manifestEntry = new ManifestEntry(productName, productVersion, groupId, artifactId, version, jarFileName, pomName, jarAbsolutePath, null);
                             }
                         }
+                    }
+                }
 
-                        // create manifest entry for the bundled jar inside of the jar file
-                        List<JarEntry> pomList = new ArrayList<>();
-                        entries = jarFile.entries();
-                        while (entries.hasMoreElements()) {
-                            JarEntry jarEntryForPOMFile = entries.nextElement();
-                            String jarEntryNameForPOMFile = jarEntryForPOMFile.getName();
-                            if (jarEntryNameForPOMFile.matches("META-INF/maven/.+/pom.xml")) {
-                                if (!jarEntryNameForPOMFile.equals(jarsMainPOMFile)) {
-                                    // to exclusive the main jar's pom.xml file from bundledjar entries
-                                    pomList.add(jarEntryForPOMFile);
-                                }
-                            }
+                // create manifest entry for the bundled jar inside of the jar file
+                List<ZipArchiveEntry> pomList = new ArrayList<>();
+                for (ZipArchiveEntry jarEntryForPOMFile : pomFiles) {
+                    if (!jarEntryForPOMFile.getName().equals(jarsMainPOMFile)) {
+                        // to exclusive the main jar's pom.xml file from bundledjar entries
+                        pomList.add(jarEntryForPOMFile);
+                    }
+                }
+                StringBuffer output = new StringBuffer();
+                for (int i = 0; i < pomList.size(); i++) {
+                    final ZipArchiveEntry jarEntryForBundledJar = pomList.get(i);
+                    String jarEntryName = jarEntryForBundledJar.getName();
+                    try {
+                        final PomInfo candidatePom = candidatePoms.get(jarEntryForBundledJar);
+                        final long pomStart = System.nanoTime();
+                        final String jarVersion = candidatePom != null
+                                ? candidatePom.getVersion()
+                                : PomInfo.readVersion(jarFile, index, jarEntryForBundledJar);
+                        if (candidatePom == null) {
+                            stats.record(ScanStats.Phase.POM, pomStart);
                         }
-                        StringBuffer output = new StringBuffer();
-                        for (int i = 0; i < pomList.size(); i++) {
-                            final JarEntry jarEntryForBundledJar = pomList.get(i);
-                            String jarEntryName = jarEntryForBundledJar.getName();
-                            String jarVersion = "";
-                            try {
-                                if (jarEntryName.matches("META-INF/maven/.*/pom.xml")) {
-                                    Model model = new MavenXpp3Reader().read(jarFile.getInputStream(jarEntryForBundledJar));
-                                    jarVersion = model.getVersion();
-                                    if (jarVersion == null) {
-                                        jarVersion = model.getParent().getVersion();
-                                    }
-                                }
-                                output.append(jarEntryName.replace("pom.xml", jarVersion));
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
+                        output.append(jarEntryName.replace("pom.xml", jarVersion));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
 
-                            if (i != pomList.size() - 1) {
-                                output.append(COMMA_SEPARATE);
-                            }
+                    if (i != pomList.size() - 1) {
+                        output.append(COMMA_SEPARATE);
+                    }
+                }
+                manifestEntry.setBundles(output.toString());
+                scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
+            } else if (pomCountInJarFile == 1) {
+                // if it is not uberjar
+                if (!scanMainJarManifestFinished) {
+                    // create manifest entry for the jar file
+                    for (ZipArchiveEntry jarEntryForPOMFile : pomFiles) {
+                        final long pomStart = System.nanoTime();
+                        final PomInfo pom = PomInfo.readPom(jarFile, jarEntryForPOMFile);
+                        stats.record(ScanStats.Phase.POM, pomStart);
+
+                        String groupId = pom.getGroupId();
+                        if (groupId == null && pom.hasParent()) {
+                            groupId = pom.getParentGroupId();
                         }
-                        manifestEntry.setBundles(output.toString());
-                        scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
-                    } else if (pomCountInJarFile == 1) {
-                        // if it is not uberjar
-                        if (!scanMainJarManifestFinished) {
-                            // create manifest entry for the jar file
-                            final Enumeration<JarEntry> entries = jarFile.entries();
-                            while (entries.hasMoreElements()) {
-                                JarEntry jarEntryForPOMFile = entries.nextElement();
-                                String jarEntryNameForPOMFile = jarEntryForPOMFile.getName();
-                                if (jarEntryNameForPOMFile.matches("META-INF/maven/.+/pom.xml")) {
-                                    Model model = new MavenXpp3Reader().read(jarFile.getInputStream(jarEntryForPOMFile));
-
-                                    String groupId = model.getGroupId();
-                                    if (groupId == null && model.getParent() != null) {
-                                        groupId = model.getParent().getGroupId();
-                                    }
-                                    if (groupId == null) {
-                                        groupId = manifestEntry.getGroupId();
-                                    }
-                                    String artifactId = model.getArtifactId();
-                                    String version = model.getVersion();
-                                    if (version == null) {
-                                        version = model.getParent().getVersion();
-                                    }
-                                    String pomName = model.getName();
-                                    if (artifactId != null && version != null) {
-                                        if (pomName == null || pomName.contains("${")) {
-                                            pomName = artifactId;
-                                        }
-                                        manifestEntry = new ManifestEntry(productName, productVersion, groupId, artifactId, version, jarFileName, pomName, jarAbsolutePath, null);
-                                        scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
-                                    }
-                                }
-                            }
+                        if (groupId == null) {
+                            groupId = manifestEntry.getGroupId();
                         }
-                    } else {
-                        // pom.xml not found in the jar file
-                        if (manifestEntry == null & !scanMainJarManifestFinished) {
-                            manifestEntry = new ManifestEntry(productName, productVersion, UNKNOWN, UNKNOWN, UNKNOWN, jarFileName, UNKNOWN, jarAbsolutePath, null);
+                        String artifactId = pom.getArtifactId();
+                        String version = pom.getVersion();
+                        String pomName = pom.getName();
+                        if (artifactId != null && version != null) {
+                            if (pomName == null || pomName.contains("${")) {
+                                pomName = artifactId;
+                            }
+                            manifestEntry = new ManifestEntry(productName, productVersion, groupId, artifactId, version, jarFileName, pomName, jarAbsolutePath, null);
                             scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
-                        } else {
-                            scanMainJarManifestFinished = true;
                         }
                     }
-                } catch (Exception e) {
-                    // java.util.zip.ZipException: zip END header not found /tmp/koala/downloads/fuse/7.8.0/unzip/redhat-fuse-7.8.0-sources.zip/fuse-karaf-7.8.0.fuse-780038-redhat-00001/modules/fuse-patch/patch-management/src/test/resources/content/patch9/system/org/jboss/fuse/fuse-tranquility/1.2.4/fuse-tranquility-1.2.4.jar
-                    if (!scanMainJarManifestFinished) {
-                        manifestEntry = new ManifestEntry(productName, productVersion, UNKNOWN, UNKNOWN, UNKNOWN, jarFileName, UNKNOWN, jarAbsolutePath, null);
-                        scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
-                    }
-//                LOG.errorf(e, "Exception occurred while processing %s\n", jarPathToFile);
                 }
-
-                if (scanMainJarManifestFinished) {
-                    if (manifestEntry.getPath() == null) {
-                        System.out.println();
-                    }
-                    manifests.add(manifestEntry);
+            } else {
+                // pom.xml not found in the jar file
+                if (manifestEntry == null & !scanMainJarManifestFinished) {
+                    manifestEntry = new ManifestEntry(productName, productVersion, UNKNOWN, UNKNOWN, UNKNOWN, jarFileName, UNKNOWN, jarAbsolutePath, null);
+                    scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
                 } else {
-                    LOG.warnf("Failed to generate manifest from %s", jarPathToFile);
+                    scanMainJarManifestFinished = true;
                 }
             }
-        }
-        // Clean up decompressed dir
-        try {
-            FileUtils.deleteQuietly(Paths.get(tmpDir).toFile());
         } catch (Exception e) {
-            e.printStackTrace();
+            if (!scanMainJarManifestFinished) {
+                manifestEntry = unknownManifestEntry(productName, productVersion, jarFileName, jarAbsolutePath);
+                scanMainJarManifestFinished = checkManifestEntry(manifestEntry);
+            }
+//                LOG.errorf(e, "Exception occurred while processing %s\n", jarAbsolutePath);
+        }
+        if (scanMainJarManifestFinished && manifestEntry != null) {
+            manifestEntry.setFingerprint(ArchiveFingerprint.of(jarFile));
         }
-        return manifests;
+        return scanMainJarManifestFinished ? manifestEntry : null;
+    }
+
+    /**
+     * Make an entry for an archive which cannot be read, e.g. java.util.zip.ZipException: zip END header not found
+     */
+    static ManifestEntry unknownManifestEntry(final String productName, final String productVersion, final String jarFileName,
+                                              final String jarAbsolutePath) {
+        return new ManifestEntry(productName, productVersion, UNKNOWN, UNKNOWN, UNKNOWN, jarFileName, UNKNOWN, jarAbsolutePath, null);
     }
 
     private static boolean checkManifestEntry(ManifestEntry manifestEntry) {
@@ -300,43 +282,52 @@ public class Alpaca {
         return validFlag;
     }
 
-    private static int countPOMFiletoCheckUberJar(JarFile jarFile) {
-        // Get pom.xml files in META-INF/maven/
-        int pomCountInJarFile = 0;
-        final Enumeration<JarEntry> entriesForPomCount = jarFile.entries();
-        while (entriesForPomCount.hasMoreElements()) {
-            final JarEntry jarEntry = entriesForPomCount.nextElement();
-            final String jarEntryName = jarEntry.getName();
-            if (jarEntryName.matches("META-INF/maven/.+/pom.xml")) {
-                pomCountInJarFile++;
-            }
+    /**
+     * Read META-INF/MANIFEST.MF of the jar file, if any
+     */
+    private static Manifest getManifest(ZipFile jarFile, JarIndex index) throws IOException {
+        final ZipArchiveEntry manifestEntry = index.getManifest();
+        if (manifestEntry == null) {
+            return null;
+        }
+        try (InputStream input = jarFile.getInputStream(manifestEntry)) {
+            return new Manifest(input);
         }
-        return pomCountInJarFile;
     }
 
-    private static JarEntry getBuildMetadataFile(JarFile jarFile) {
-        Enumeration<JarEntry> entriesForBuildMetadataCount = jarFile.entries();
-        while (entriesForBuildMetadataCount.hasMoreElements()) {
-            JarEntry jarEntry = entriesForBuildMetadataCount.nextElement();
-            String jarEntryName = jarEntry.getName();
-            if (jarEntryName.matches(buildMetadata)) {
-                return jarEntry;
-            }
-        }
-        return null;
+    public static ClassIndex scanClasses(final Path jarFilePath) {
+        return scanClasses("", "", jarFilePath, new ScanOptions());
     }
 
-    public static Set<String> scanClasses(Path jarFilePath) {
-        Set<String> classes = Collections.synchronizedSet(Sets.newHashSet());
+    /**
+     * Index the classes of every Java archive in the file or directory, including nested ones, by the manifest entries of
+     * the archives they are in. The manifest entries are made in the same pass as by {@link #scanManifestEntry(String, String, Path, ScanOptions)}.
+     */
+    public static ClassIndex scanClasses(final String productName, final String productVersion, final Path jarFilePath,
+                                         final ScanOptions options) {
+        final ClassIndex classIndex = new ClassIndex();
+        options.setClassIndex(classIndex);
+        try {
+            scanManifestEntry(productName, productVersion, jarFilePath, options);
+        } finally {
+            options.setClassIndex(null);
+        }
+        return classIndex;
+    }
 
-        return classes;
+    /**
+     * Find the classes and packages in more than one Java archive of the file or directory, see {@link ConflictReport}
+     */
+    public static ConflictReport scanConflicts(final String productName, final String productVersion, final Path jarFilePath,
+                                               final ScanOptions options) {
+        return ConflictReport.of(scanClasses(productName, productVersion, jarFilePath, options));
     }
 
     /**
      * Make an entry by looking up META-INF/MANIFEST.MF
      */
-    private static ManifestEntry getEntryFromJarManifest(final String productName, final String productVersion,
-                                                         final String jarFileName, final Manifest manifest) {
+    static ManifestEntry getEntryFromJarManifest(final String productName, final String productVersion,
+                                                 final String jarFileName, final Manifest manifest) {
         if (manifest != null) {
             Attributes attributes = manifest.getMainAttributes();
 
@@ -3,16 +3,25 @@ package io.alpaca;
 import com.google.common.collect.Sets;
 import io.alpaca.models.ManifestEntry;
 import org.apache.commons.io.FileUtils;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -28,37 +37,295 @@ public class App {
 
     private static String MANIFEST = "manifest";
 
+    private static String CLASSES = "classes";
+
+    private static String INDEX = "index";
+
+    private static String CONFLICTS = "conflicts";
+
+    private static String LOOKUP = "lookup";
+
+    private static String SERVE = "serve";
+
+    private static String BATCH = "batch";
+
+    private static String STDIN = "-";
+
+    private static String IN_MEMORY = "--in-memory";
+
+    private static String SPILL_THRESHOLD = "--spill-threshold=";
+
+    private static String CACHE_DIR = "--cache-dir=";
+
+    private static String CACHE_MAX_SIZE = "--cache-max-size=";
+
+    private static String IO_THREADS = "--io-threads=";
+
+    private static String CPU_THREADS = "--cpu-threads=";
+
+    private static String MAX_OPEN_ARCHIVES = "--max-open-archives=";
+
+    private static String READ_AHEAD = "--read-ahead=";
+
+    private static String VIRTUAL_THREADS = "--virtual-threads";
+
+    private static String INCLUDE = "--include=";
+
+    private static String EXCLUDE = "--exclude=";
+
+    private static String MIN_SIZE = "--min-size=";
+
+    private static String MAX_SIZE = "--max-size=";
+
+    private static String SNAPSHOT = "--snapshot=";
+
+    private static String FORMAT = "--format=";
+
+    private static String PORT = "--port=";
+
+    private static String PRODUCT_NAME = "--product-name=";
+
+    private static String PRODUCT_VERSION = "--product-version=";
+
+    private static String SERVE_CACHE_DIR = "cache";
+
+    private static int DEFAULT_PORT = 8080;
+
+    private static String STATS = "--stats";
+
+    private static String STATS_FILE = "--stats=";
+
+    private static String JSON = ".json";
+
+    private static String NDJSON = "ndjson";
+
+    private static String CYCLONEDX = "cyclonedx";
+
+    private static String ADDED = "added";
+
+    private static String REMOVED = "removed";
+
     public static void main(String[] args) {
         String targetClass = null;
         String jarPath;
-        if (args != null && args.length == 1) {
+        final ScanOptions options = new ScanOptions();
+        final List<String> arguments = new ArrayList<>();
+        final List<String> includes = new ArrayList<>();
+        final List<String> excludes = new ArrayList<>(ScanOptions.DEFAULT_EXCLUDES);
+        String format = null;
+        String cacheDir = null;
+        String snapshotFile = null;
+        String statsFile = null;
+        int port = DEFAULT_PORT;
+        String productName = "";
+        String productVersion = "";
+        long cacheMaxSize = ScanCache.DEFAULT_MAX_SIZE;
+        if (args != null) {
+            for (String arg : args) {
+                if (IN_MEMORY.equals(arg)) {
+                    options.setInMemory(true);
+                } else if (arg.startsWith(SPILL_THRESHOLD)) {
+                    options.setSpillThreshold(Long.parseLong(arg.substring(SPILL_THRESHOLD.length())));
+                } else if (arg.startsWith(CACHE_DIR)) {
+                    cacheDir = arg.substring(CACHE_DIR.length());
+                } else if (arg.startsWith(CACHE_MAX_SIZE)) {
+                    cacheMaxSize = Long.parseLong(arg.substring(CACHE_MAX_SIZE.length()));
+                } else if (arg.startsWith(IO_THREADS)) {
+                    options.setIoParallelism(Integer.parseInt(arg.substring(IO_THREADS.length())));
+                } else if (arg.startsWith(CPU_THREADS)) {
+                    options.setCpuParallelism(Integer.parseInt(arg.substring(CPU_THREADS.length())));
+                } else if (arg.startsWith(MAX_OPEN_ARCHIVES)) {
+                    options.setMaxOpenArchives(Integer.parseInt(arg.substring(MAX_OPEN_ARCHIVES.length())));
+                } else if (arg.startsWith(READ_AHEAD)) {
+                    options.setReadAhead(Integer.parseInt(arg.substring(READ_AHEAD.length())));
+                } else if (VIRTUAL_THREADS.equals(arg)) {
+                    options.setVirtualThreads(true);
+                } else if (arg.startsWith(INCLUDE)) {
+                    includes.add(arg.substring(INCLUDE.length()));
+                } else if (arg.startsWith(EXCLUDE)) {
+                    excludes.add(arg.substring(EXCLUDE.length()));
+                } else if (arg.startsWith(MIN_SIZE)) {
+                    options.setMinFileSize(Long.parseLong(arg.substring(MIN_SIZE.length())));
+                } else if (arg.startsWith(MAX_SIZE)) {
+                    options.setMaxFileSize(Long.parseLong(arg.substring(MAX_SIZE.length())));
+                } else if (arg.startsWith(SNAPSHOT)) {
+                    snapshotFile = arg.substring(SNAPSHOT.length());
+                } else if (arg.startsWith(FORMAT)) {
+                    format = arg.substring(FORMAT.length());
+                } else if (arg.startsWith(PRODUCT_NAME)) {
+                    productName = arg.substring(PRODUCT_NAME.length());
+                } else if (arg.startsWith(PRODUCT_VERSION)) {
+                    productVersion = arg.substring(PRODUCT_VERSION.length());
+                } else if (arg.startsWith(PORT)) {
+                    port = Integer.parseInt(arg.substring(PORT.length()));
+                } else if (STATS.equals(arg)) {
+                    options.setStats(new ScanStats());
+                } else if (arg.startsWith(STATS_FILE)) {
+                    options.setStats(new ScanStats());
+                    statsFile = arg.substring(STATS_FILE.length());
+                } else {
+                    arguments.add(arg);
+                }
+            }
+        }
+        options.setIncludes(includes).setExcludes(excludes);
+        String indexFile = null;
+        if (arguments.size() >= 3 && LOOKUP.equals(arguments.get(0))) {
+            // Usage: java -jar alpaca-1.0.0.Final.jar lookup <INDEX_FILE> <CLASS_NAME>...
+            lookup(arguments.get(1), arguments.subList(2, arguments.size()));
+            return;
+        } else if (arguments.size() == 3 && INDEX.equals(arguments.get(0))) {
+            // Usage: java -jar alpaca-1.0.0.Final.jar index <JAR_FILE_PATH> <INDEX_FILE>
+            targetClass = INDEX;
+            jarPath = arguments.get(1);
+            indexFile = arguments.get(2);
+        } else if (!arguments.isEmpty() && arguments.size() <= 2 && BATCH.equals(arguments.get(0))) {
+            // Usage: java -jar alpaca-1.0.0.Final.jar batch [<JOB_FILE>], from stdin without a job file
+            targetClass = BATCH;
+            jarPath = arguments.size() == 2 ? arguments.get(1) : STDIN;
+        } else if (arguments.size() == 1 && SERVE.equals(arguments.get(0))) {
+            // Usage: java -jar alpaca-1.0.0.Final.jar serve [--port=<PORT>]
+            targetClass = SERVE;
+            jarPath = null;
+            if (cacheDir == null) {
+                // share the scan results of the requests even without a cache dir
+                cacheDir = Paths.get(options.getTmpDir(), SERVE_CACHE_DIR).toString();
+            }
+        } else if (arguments.size() == 1 && !hasOwnArguments(arguments.get(0))) {
             // Usage: java -jar alpaca-1.0.0.Final.jar <JAR_FILE_PATH>
-            jarPath = args[0];
-        } else if (args != null && args.length == 2) {
+            jarPath = arguments.get(0);
+        } else if (arguments.size() == 2 && !hasOwnArguments(arguments.get(0))) {
             // Usage: java -jar alpaca-1.0.0.Final.jar manifest <JAR_FILE_PATH>
-            targetClass = args[0];
-            jarPath = args[1];
+            targetClass = arguments.get(0);
+            jarPath = arguments.get(1);
         } else {
-            System.out.println("Usage: java -jar alpaca-1.0.0.Final.jar <JAR_FILE_PATH>\n       java -jar alpaca-1.0.0.Final.jar " + MANIFEST + " <JAR_FILE_PATH>");
+            System.out.println("Usage: java -jar alpaca-1.0.0.Final.jar <JAR_FILE_PATH>\n       java -jar alpaca-1.0.0.Final.jar " + MANIFEST
+                    + " [" + IN_MEMORY + "] [" + SPILL_THRESHOLD + "<BYTES>] [" + CACHE_DIR + "<DIR>] [" + CACHE_MAX_SIZE + "<BYTES>]"
+                    + " [" + IO_THREADS + "<N>] [" + CPU_THREADS + "<N>] [" + MAX_OPEN_ARCHIVES + "<N>] [" + READ_AHEAD + "<N>] [" + VIRTUAL_THREADS + "]"
+                    + " [" + INCLUDE + "<GLOB>]... [" + EXCLUDE + "<GLOB>]... [" + MIN_SIZE + "<BYTES>] [" + MAX_SIZE + "<BYTES>]"
+                    + " [" + SNAPSHOT + "<FILE>] [" + FORMAT + NDJSON + "|" + CYCLONEDX + "] [" + STATS + "[=<FILE>]]"
+                    + " [" + PRODUCT_NAME + "<NAME>] [" + PRODUCT_VERSION + "<VERSION>] <JAR_FILE_PATH>\n       java -jar alpaca-1.0.0.Final.jar " + CLASSES
+                    + " [OPTIONS] <JAR_FILE_PATH>\n       java -jar alpaca-1.0.0.Final.jar " + INDEX + " [OPTIONS] <JAR_FILE_PATH> <INDEX_FILE>"
+                    + "\n       java -jar alpaca-1.0.0.Final.jar " + LOOKUP + " <INDEX_FILE> <CLASS_NAME>..."
+                    + "\n       java -jar alpaca-1.0.0.Final.jar " + CONFLICTS + " [OPTIONS] <JAR_FILE_PATH>"
+                    + "\n       java -jar alpaca-1.0.0.Final.jar " + SERVE + " [OPTIONS] [" + PORT + "<PORT>]"
+                    + "\n       java -jar alpaca-1.0.0.Final.jar " + BATCH + " [OPTIONS] [<JOB_FILE>]");
             return;
         }
+        if (BATCH.equals(targetClass) && (CYCLONEDX.equals(format) || snapshotFile != null)) {
+            // the jobs are written as they are scanned, with no SBOM document nor snapshot for each of them
+            System.err.println("The " + BATCH + " command does not support " + (snapshotFile != null ? SNAPSHOT + "<FILE>" : FORMAT + CYCLONEDX));
+            return;
+        }
+        if (cacheDir != null) {
+            try {
+                options.setCache(ScanCache.open(Paths.get(cacheDir), cacheMaxSize));
+            } catch (IOException e) {
+                System.err.println("Failed to open the scan cache " + cacheDir + ": " + e);
+                return;
+            }
+        }
+
+        if (SERVE.equals(targetClass)) {
+            serve(port, options);
+            return;
+        } else if (BATCH.equals(targetClass)) {
+            batch(jarPath, options, format, productName, productVersion);
+            writeStats(options.getStats(), statsFile);
+            return;
+        }
+
+        final ScanSnapshot snapshot = snapshotFile != null ? ScanSnapshot.load(Paths.get(snapshotFile)) : null;
+        options.setSnapshot(snapshot);
 
         final StringBuffer output = new StringBuffer();
 
-        if (targetClass != null && MANIFEST.equals(targetClass)) {
-            final Set<String> lineSet = Collections.synchronizedSortedSet(Sets.newTreeSet());
-            final var manifestEntries = Alpaca.scanManifestEntry(Paths.get(jarPath));
+        if (targetClass != null && MANIFEST.equals(targetClass) && NDJSON.equals(format)) {
+            // Stream one JSON object per manifest entry as soon as it is found
+            try (NdjsonWriter writer = new NdjsonWriter(System.out)) {
+                Alpaca.scanManifestEntry(productName, productVersion, Paths.get(jarPath), options, writer);
+                if (snapshot != null) {
+                    // then the entries added and removed since the previous scan
+                    changes(snapshot.getManifests(), snapshot.getPreviousManifests()).forEach(manifestEntry -> writer.acceptChange(ADDED, manifestEntry));
+                    changes(snapshot.getPreviousManifests(), snapshot.getManifests()).forEach(manifestEntry -> writer.acceptChange(REMOVED, manifestEntry));
+                    saveSnapshot(snapshot, snapshotFile);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writeStats(options.getStats(), statsFile);
+            return;
+        } else if (targetClass != null && MANIFEST.equals(targetClass) && CYCLONEDX.equals(format)) {
+            // Stream the components of every file as soon as it is scanned
+            try (CycloneDxWriter writer = new CycloneDxWriter(System.out, productName, productVersion)) {
+                Alpaca.scanManifestEntry(productName, productVersion, Paths.get(jarPath), options, writer);
+                if (snapshot != null) {
+                    saveSnapshot(snapshot, snapshotFile);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writeStats(options.getStats(), statsFile);
+            return;
+        } else if (targetClass != null && MANIFEST.equals(targetClass)) {
+            final Set<String> lineSet = Sets.newTreeSet();
+            final var manifestEntries = Alpaca.scanManifestEntry(productName, productVersion, Paths.get(jarPath), options);
             for (ManifestEntry manifestEntry : manifestEntries) {
                 lineSet.add(manifestEntry.toDeptopiaManifest());
             }
             output.append(String.join("\n", lineSet));
+            if (snapshot != null) {
+                // then the lines added and removed since the previous scan, prefixed with + and -
+                final Set<String> previousLineSet = Sets.newTreeSet();
+                for (ManifestEntry manifestEntry : snapshot.getPreviousManifests()) {
+                    previousLineSet.add(manifestEntry.toDeptopiaManifest());
+                }
+                final Set<String> added = Sets.difference(lineSet, previousLineSet);
+                final Set<String> removed = Sets.difference(previousLineSet, lineSet);
+                if (!added.isEmpty() || !removed.isEmpty()) {
+                    output.append("\n");
+                }
+                added.forEach(line -> output.append("\n+ ").append(line));
+                removed.forEach(line -> output.append("\n- ").append(line));
+                saveSnapshot(snapshot, snapshotFile);
+            }
+        } else if (targetClass != null && CLASSES.equals(targetClass)) {
+            // One line per class and archive it is in
+            final Set<String> lineSet = Sets.newTreeSet();
+            Alpaca.scanClasses("", "", Paths.get(jarPath), options).forEach(classEntries -> {
+                for (ManifestEntry manifestEntry : classEntries.getManifests()) {
+                    lineSet.add(classEntries.getFqcn() + " " + manifestEntry.toDeptopiaManifest());
+                }
+            });
+            output.append(String.join("\n", lineSet));
+        } else if (targetClass != null && CONFLICTS.equals(targetClass)) {
+            // One line per duplicate class, then one per split package, with the archives they are in
+            final ConflictReport report = Alpaca.scanConflicts("", "", Paths.get(jarPath), options);
+            final List<String> lines = new ArrayList<>();
+            for (ConflictReport.DuplicateClass duplicateClass : report.getDuplicateClasses()) {
+                lines.add("duplicate-class " + duplicateClass.getFqcn() + " " + (duplicateClass.isIdentical() ? "identical" : "different")
+                        + " " + deptopiaManifests(duplicateClass.getManifests()));
+            }
+            for (ConflictReport.SplitPackage splitPackage : report.getSplitPackages()) {
+                lines.add("split-package " + splitPackage.getName() + " " + deptopiaManifests(splitPackage.getManifests()));
+            }
+            output.append(String.join("\n", lines));
+        } else if (INDEX.equals(targetClass)) {
+            try {
+                final ClassIndex classIndex = Alpaca.scanClasses("", "", Paths.get(jarPath), options);
+                ClassIndexFile.write(classIndex, Paths.get(indexFile));
+                output.append("Indexed " + classIndex.size() + " classes to " + indexFile);
+            } catch (IOException e) {
+                System.err.println("Failed to write the class index " + indexFile + ": " + e);
+                return;
+            }
         } else {
             try (JarFile jarFile = new JarFile(Paths.get(jarPath).toFile())) {
                 Enumeration<JarEntry> entries = jarFile.entries();
                 while (entries.hasMoreElements()) {
                     JarEntry jarEntry = entries.nextElement();
                     String jarEntryName = jarEntry.getName();
-                    if (jarEntryName.matches("META-INF/maven/.*/pom.xml")) {
+                    if (JarIndex.isMavenFile(jarEntryName, JarIndex.POM_XML)) {
                         pomList.add(jarEntry);
                     }
 
@@ -77,11 +344,9 @@ public class App {
                         String jarEntryName = jarEntry.getName();
                         String jarVersion = "";
                         try {
-                            if (jarEntryName.matches("META-INF/maven/.*/pom.xml")) {
-                                Model model = new MavenXpp3Reader().read(jarFile.getInputStream(jarEntry));
-                                jarVersion = model.getVersion();
-                                if (jarVersion == null) {
-                                    jarVersion = model.getParent().getVersion();
+                            if (JarIndex.isMavenFile(jarEntryName, JarIndex.POM_XML)) {
+                                try (InputStream input = jarFile.getInputStream(jarEntry)) {
+                                    jarVersion = PomInfo.readPom(input).getVersion();
                                 }
                             }
                             output.append(jarEntryName.replace("pom.xml", jarVersion));
@@ -120,5 +385,151 @@ public class App {
         }
 
         System.out.println(output);
+        writeStats(options.getStats(), statsFile);
+    }
+
+    /**
+     * Scan the rows of the job file, or of stdin for {@link #STDIN}, one after the other on the same thread pools and cache.
+     * <p/>
+     * Prints the sorted manifest lines of each row prefixed with its product name and version, e.g. product:1.0 pkg:mvn/...,
+     * or with --format=ndjson one JSON object per entry, which has the product fields.
+     */
+    /**
+     * Whether the command takes other arguments than a jar file path, so it never falls back to a scan of one
+     */
+    private static boolean hasOwnArguments(final String command) {
+        return INDEX.equals(command) || LOOKUP.equals(command) || SERVE.equals(command);
+    }
+
+    private static void batch(final String jobFile, final ScanOptions options, final String format, final String productName,
+                              final String productVersion) {
+        final List<ScanJob> jobs;
+        try (BufferedReader reader = STDIN.equals(jobFile)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(jobFile))) {
+            jobs = ScanJob.read(reader, productName, productVersion);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to read the batch job file " + jobFile + ": " + e);
+            return;
+        }
+
+        try (ScanScheduler scheduler = ScanScheduler.create(options)) {
+            options.setScheduler(scheduler);
+            if (NDJSON.equals(format)) {
+                try (NdjsonWriter writer = new NdjsonWriter(System.out)) {
+                    for (ScanJob job : jobs) {
+                        Alpaca.scanManifestEntry(job.getProductName(), job.getProductVersion(), job.getPath(), options, writer);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                for (ScanJob job : jobs) {
+                    final Set<String> lineSet = Sets.newTreeSet();
+                    for (ManifestEntry manifestEntry : Alpaca.scanManifestEntry(job.getProductName(), job.getProductVersion(), job.getPath(), options)) {
+                        lineSet.add(job.tag() + " " + manifestEntry.toDeptopiaManifest());
+                    }
+                    lineSet.forEach(System.out::println);
+                }
+            }
+        } finally {
+            options.setScheduler(null);
+        }
+    }
+
+    /**
+     * Run a {@link ScanServer} until the JVM is stopped
+     */
+    private static void serve(final int port, final ScanOptions options) {
+        try {
+            final ScanServer server = ScanServer.start(port, options);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "alpaca-shutdown"));
+            System.err.println("Listening on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + ScanServer.SCAN_PATH);
+        } catch (IOException e) {
+            System.err.println("Failed to start the scan server on port " + port + ": " + e);
+        }
+    }
+
+    /**
+     * Print the statistics of the scan on stderr, and write them to the file if any: as JSON for a .json file, else in the
+     * Prometheus text format
+     */
+    private static void writeStats(final ScanStats stats, final String statsFile) {
+        if (stats == null) {
+            return;
+        }
+        try {
+            final Writer err = new OutputStreamWriter(System.err, StandardCharsets.UTF_8);
+            stats.writeSummary(err);
+            if (statsFile != null) {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(statsFile))) {
+                    if (statsFile.endsWith(JSON)) {
+                        stats.writeJson(writer);
+                    } else {
+                        stats.writePrometheus(writer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write the scan statistics " + statsFile + ": " + e);
+        }
+    }
+
+    /**
+     * Print the archives of every class, as {@link #CLASSES} does
+     */
+    private static void lookup(final String indexFile, final List<String> classNames) {
+        final StringBuilder output = new StringBuilder();
+        try (ClassIndexFile index = ClassIndexFile.open(Paths.get(indexFile))) {
+            for (String className : classNames) {
+                final Set<String> lineSet = Sets.newTreeSet();
+                for (ManifestEntry manifestEntry : index.lookup(className).getManifests()) {
+                    lineSet.add(className + " " + manifestEntry.toDeptopiaManifest());
+                }
+                lineSet.forEach(line -> output.append(line).append('\n'));
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read the class index " + indexFile + ": " + e);
+            return;
+        }
+        System.out.print(output);
+    }
+
+    /**
+     * The manifest entries whose Deptopia line is not one of the others, one per line, like the lines added and removed in the
+     * text output. Paths are left out, as archives extracted to the temp dir have different paths on every scan.
+     */
+    static Collection<ManifestEntry> changes(final Set<ManifestEntry> manifestEntries, final Set<ManifestEntry> others) {
+        final Set<String> otherLineSet = Sets.newHashSet();
+        for (ManifestEntry manifestEntry : others) {
+            otherLineSet.add(manifestEntry.toDeptopiaManifest());
+        }
+        final Map<String, ManifestEntry> changes = new TreeMap<>();
+        for (ManifestEntry manifestEntry : manifestEntries) {
+            final String line = manifestEntry.toDeptopiaManifest();
+            if (!otherLineSet.contains(line)) {
+                changes.putIfAbsent(line, manifestEntry);
+            }
+        }
+        return changes.values();
+    }
+
+    /**
+     * The sorted Deptopia manifest lines of the entries, separated by spaces
+     */
+    private static String deptopiaManifests(final Set<ManifestEntry> manifestEntries) {
+        final Set<String> lineSet = Sets.newTreeSet();
+        for (ManifestEntry manifestEntry : manifestEntries) {
+            lineSet.add(manifestEntry.toDeptopiaManifest());
+        }
+        return String.join(" ", lineSet);
+    }
+
+    private static void saveSnapshot(final ScanSnapshot snapshot, final String snapshotFile) {
+        try {
+            snapshot.save();
+        } catch (IOException e) {
+            System.err.println("Failed to save the scan snapshot " + snapshotFile + ": " + e);
+        }
     }
-}
\ No newline at end of file
+}
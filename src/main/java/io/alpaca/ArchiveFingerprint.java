@@ -0,0 +1,124 @@
+package io.alpaca;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * Identity of a zip or Java archive from its central directory: a hash of the name, CRC-32 and size of its entries,
+ * sorted by name.
+ * <p/>
+ * Only the end of central directory record and the central directory are read, nothing is decompressed. Archives with the
+ * same entries have the same fingerprint whatever their timestamps, compression, entry order, comment or launch script.
+ */
+public final class ArchiveFingerprint {
+
+    private ArchiveFingerprint() {
+    }
+
+    /**
+     * Fingerprint of the zip or Java archive file
+     *
+     * @throws ZipException if the file is not a zip file
+     */
+    public static String of(final Path file) throws IOException {
+        try (SeekableByteChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return of(channel);
+        }
+    }
+
+    /**
+     * Fingerprint of the zip or Java archive read from the channel, e.g. a nested archive, the caller closes it
+     *
+     * @throws ZipException if the channel is not a zip file
+     */
+    public static String of(final SeekableByteChannel channel) throws IOException {
+        final CentralDirectory centralDirectory = CentralDirectory.locate(channel);
+        final ByteBuffer headers = centralDirectory.read(channel);
+        final List<Entry> entries = new ArrayList<>((int) Math.min(centralDirectory.getEntries(), 1 << 16));
+        int position = 0;
+        while (position + CentralDirectory.CENTRAL_FILE_HEADER_SIZE <= headers.limit()
+                && headers.getInt(position) == CentralDirectory.CENTRAL_FILE_HEADER_SIGNATURE) {
+            final long crc = Integer.toUnsignedLong(headers.getInt(position + 16));
+            long size = Integer.toUnsignedLong(headers.getInt(position + 24));
+            final int nameLength = Short.toUnsignedInt(headers.getShort(position + 28));
+            final int extraLength = Short.toUnsignedInt(headers.getShort(position + 30));
+            final int commentLength = Short.toUnsignedInt(headers.getShort(position + 32));
+            final int namePosition = position + CentralDirectory.CENTRAL_FILE_HEADER_SIZE;
+            if (namePosition + nameLength + extraLength > headers.limit()) {
+                throw new ZipException("Truncated central directory");
+            }
+            final byte[] name = new byte[nameLength];
+            headers.position(namePosition);
+            headers.get(name);
+            if (size == CentralDirectory.ZIP64_MAGIC) {
+                final long[] zip64 = {size};
+                CentralDirectory.zip64Values(headers, namePosition + nameLength, extraLength, zip64);
+                size = zip64[0];
+            }
+            entries.add(new Entry(name, crc, size));
+            position = namePosition + nameLength + extraLength + commentLength;
+        }
+        return hash(entries);
+    }
+
+    /**
+     * Fingerprint of the zip file already opened for the scan, same as {@link #of(SeekableByteChannel)} without reading it again
+     */
+    static String of(final ZipFile zipFile) {
+        final List<Entry> entries = new ArrayList<>();
+        final Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
+        while (zipEntries.hasMoreElements()) {
+            final ZipArchiveEntry entry = zipEntries.nextElement();
+            entries.add(new Entry(entry.getRawName(), entry.getCrc(), entry.getSize()));
+        }
+        return hash(entries);
+    }
+
+    private static String hash(final List<Entry> entries) {
+        entries.sort(Entry::compareTo);
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Entry entry : entries) {
+            hasher.putInt(entry.name.length).putBytes(entry.name).putLong(entry.crc).putLong(entry.size);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final byte[] name;
+
+        private final long crc;
+
+        private final long size;
+
+        private Entry(final byte[] name, final long crc, final long size) {
+            this.name = name;
+            this.crc = crc;
+            this.size = size;
+        }
+
+        @Override
+        public int compareTo(final Entry other) {
+            final int byName = Arrays.compareUnsigned(name, other.name);
+            if (byName != 0) {
+                return byName;
+            }
+            final int byCrc = Long.compare(crc, other.crc);
+            return byCrc != 0 ? byCrc : Long.compare(size, other.size);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.alpaca;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Type of a file or archive entry, detected from its first bytes instead of its name or content type.
+ */
+public enum ArchiveType {
+
+    /**
+     * Zip and Java archives, starting with a local file header or, if empty, with the end of central directory record
+     */
+    ZIP,
+
+    /**
+     * Gzip compressed file, taken for a tar.gz file
+     */
+    GZIP,
+
+    /**
+     * POSIX or GNU tar file
+     */
+    TAR,
+
+    BZIP2,
+
+    XZ,
+
+    /**
+     * No archive
+     */
+    UNKNOWN;
+
+    /**
+     * Bytes needed to detect any type, the tar magic comes after the first tar header fields
+     */
+    static final int HEADER_SIZE = 512;
+
+    private static final byte[] ZIP_LOCAL_FILE_HEADER = {'P', 'K', 3, 4};
+
+    private static final byte[] ZIP_END_OF_CENTRAL_DIRECTORY = {'P', 'K', 5, 6};
+
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+
+    private static final byte[] BZIP2_MAGIC = {'B', 'Z', 'h'};
+
+    private static final byte[] XZ_MAGIC = {(byte) 0xfd, '7', 'z', 'X', 'Z', 0};
+
+    private static final byte[] TAR_MAGIC = "ustar".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int TAR_MAGIC_OFFSET = 257;
+
+    /**
+     * Read the first bytes of the file
+     */
+    public static ArchiveType of(final Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return of(input);
+        }
+    }
+
+    /**
+     * Read the first bytes of the stream, the caller closes it
+     */
+    public static ArchiveType of(final InputStream input) throws IOException {
+        final byte[] header = new byte[HEADER_SIZE];
+        return of(header, IOUtils.read(input, header));
+    }
+
+    public static ArchiveType of(final byte[] header, final int length) {
+        if (startsWith(header, length, 0, ZIP_LOCAL_FILE_HEADER) || startsWith(header, length, 0, ZIP_END_OF_CENTRAL_DIRECTORY)) {
+            return ZIP;
+        } else if (startsWith(header, length, 0, GZIP_MAGIC)) {
+            return GZIP;
+        } else if (startsWith(header, length, TAR_MAGIC_OFFSET, TAR_MAGIC)) {
+            return TAR;
+        } else if (startsWith(header, length, 0, BZIP2_MAGIC)) {
+            return BZIP2;
+        } else if (startsWith(header, length, 0, XZ_MAGIC)) {
+            return XZ;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * A tar file, plain or gzip compressed
+     */
+    public boolean isTar() {
+        return this == TAR || this == GZIP;
+    }
+
+    /**
+     * An archive whose entries Alpaca reads, bzip2 and xz files are detected but not decompressed
+     */
+    public boolean isSupported() {
+        return this == ZIP || isTar();
+    }
+
+    private static boolean startsWith(final byte[] header, final int length, final int offset, final byte[] magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,198 @@
+package io.alpaca;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.ZipException;
+
+/**
+ * Where the central directory of a zip file is, from its end of central directory record and, for ZIP64 files, from its
+ * ZIP64 end of central directory record.
+ * <p/>
+ * The central directory is found from the end of the file, so bytes in front of the zip data, e.g. the launch script of an
+ * executable jar, are skipped: the offsets recorded in the file count from the start of the zip data, see {@link #getPrefix()}.
+ */
+final class CentralDirectory {
+
+    static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+
+    static final int CENTRAL_FILE_HEADER_SIZE = 46;
+
+    static final int CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50;
+
+    static final long ZIP64_MAGIC = 0xffffffffL;
+
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+
+    private final long position;
+
+    private final long size;
+
+    private final long entries;
+
+    private final long prefix;
+
+    private CentralDirectory(final long position, final long size, final long entries, final long prefix) {
+        this.position = position;
+        this.size = size;
+        this.entries = entries;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Find the central directory of the zip file
+     *
+     * @throws ZipException if the file has no end of central directory record, i.e. is not a zip file
+     */
+    static CentralDirectory locate(final SeekableByteChannel channel) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < END_OF_CENTRAL_DIRECTORY_SIZE) {
+            throw new ZipException("Not a zip file, too short");
+        }
+        // The end of central directory record is at the end of the file, followed by a comment of up to 64k
+        final int tailSize = (int) Math.min(fileSize, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        final long tailPosition = fileSize - tailSize;
+        final ByteBuffer tail = read(channel, tailPosition, tailSize);
+        for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) != END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                continue;
+            }
+            final long endOfCentralDirectory = tailPosition + i;
+            // The ZIP64 records sit between the central directory and this record, even if its values are not saturated
+            final CentralDirectory zip64 = locateZip64(channel, endOfCentralDirectory);
+            if (zip64 != null) {
+                return zip64;
+            }
+            final long entries = Short.toUnsignedLong(tail.getShort(i + 10));
+            final long size = Integer.toUnsignedLong(tail.getInt(i + 12));
+            final long offset = Integer.toUnsignedLong(tail.getInt(i + 16));
+            final long position = endOfCentralDirectory - size;
+            if (position < 0) {
+                throw new ZipException("Corrupt end of central directory record");
+            }
+            return new CentralDirectory(position, size, entries, Math.max(0, position - offset));
+        }
+        throw new ZipException("Not a zip file, no end of central directory record");
+    }
+
+    /**
+     * Read the ZIP64 end of central directory record, which the locator in front of the end of central directory points to
+     *
+     * @return null if there is none
+     */
+    private static CentralDirectory locateZip64(final SeekableByteChannel channel, final long endOfCentralDirectory) throws IOException {
+        final long locatorPosition = endOfCentralDirectory - ZIP64_LOCATOR_SIZE;
+        if (locatorPosition < ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE) {
+            return null;
+        }
+        final ByteBuffer locator = read(channel, locatorPosition, ZIP64_LOCATOR_SIZE);
+        if (locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+            return null;
+        }
+        // The record is usually right in front of the locator, else at its recorded offset if there is no prefix
+        long recordPosition = locatorPosition - ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE;
+        ByteBuffer record = read(channel, recordPosition, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE);
+        if (record.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+            recordPosition = locator.getLong(8);
+            if (recordPosition < 0 || recordPosition + ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE > locatorPosition) {
+                return null;
+            }
+            record = read(channel, recordPosition, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE);
+            if (record.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return null;
+            }
+        }
+        final long entries = record.getLong(32);
+        final long size = record.getLong(40);
+        final long offset = record.getLong(48);
+        final long position = recordPosition - size;
+        if (size < 0 || position < 0) {
+            throw new ZipException("Corrupt ZIP64 end of central directory record");
+        }
+        return new CentralDirectory(position, size, entries, Math.max(0, position - offset));
+    }
+
+    /**
+     * Replace the values of a central file header saturated to 0xffffffff by their values from its ZIP64 extended information
+     * extra field, which holds them in this order: size, compressed size, local header offset
+     *
+     * @param values the values in the same order, the first ones only if the others are not needed
+     */
+    static void zip64Values(final ByteBuffer headers, final int extraPosition, final int extraLength, final long[] values) {
+        int position = extraPosition;
+        while (position + 4 <= extraPosition + extraLength) {
+            final int id = Short.toUnsignedInt(headers.getShort(position));
+            final int length = Short.toUnsignedInt(headers.getShort(position + 2));
+            if (id == ZIP64_EXTRA_FIELD) {
+                int field = position + 4;
+                for (int i = 0; i < values.length && field + 8 <= position + 4 + length; i++) {
+                    if (values[i] == ZIP64_MAGIC) {
+                        values[i] = headers.getLong(field);
+                        field += 8;
+                    }
+                }
+                return;
+            }
+            position += 4 + length;
+        }
+    }
+
+    /**
+     * Read the whole central directory, little endian
+     */
+    ByteBuffer read(final SeekableByteChannel channel) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory too big: " + size + " bytes");
+        }
+        return read(channel, position, (int) size);
+    }
+
+    private static ByteBuffer read(final SeekableByteChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new ZipException("Truncated zip file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Position of the central directory in the file
+     */
+    long getPosition() {
+        return position;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Number of entries recorded in the end of central directory record
+     */
+    long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Number of bytes in front of the zip data, 0 for a plain zip file
+     */
+    long getPrefix() {
+        return prefix;
+    }
+}
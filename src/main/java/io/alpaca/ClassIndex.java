@@ -0,0 +1,253 @@
+package io.alpaca;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import io.alpaca.models.ClassEntries;
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The fully qualified names of the classes in the scanned Java archives, with the manifest entries of the archives they are in.
+ * <p/>
+ * Filled from the central directory read for the manifest detection, see {@link ScanOptions#setClassIndex(ClassIndex)}.
+ * Classes are kept by package: the package name is stored once, the simple class names are interned, and every class of an
+ * archive costs a reference, an int and a long, so millions of classes fit in a modest heap.
+ */
+public final class ClassIndex {
+
+    private static final String CLASS = ".class";
+
+    // Prefixes of the classes of web and Spring Boot applications, and of multi-release jars
+    private static final List<String> CLASS_DIRS = List.of("WEB-INF/classes/", "BOOT-INF/classes/");
+
+    private static final String VERSIONS_DIR = "META-INF/versions/";
+
+    // package name with slashes -> classes of the package
+    private final Map<String, PackageClasses> packages = new ConcurrentHashMap<>();
+
+    private final Interner<String> simpleNames = Interners.newStrongInterner();
+
+    // archive id -> manifest entries of the archive and its copies, see ManifestScanner#deduplicated
+    private final List<List<ManifestEntry>> owners = new ArrayList<>();
+
+    private final Map<ManifestEntry, Integer> ownerIds = new HashMap<>();
+
+    public ClassIndex() {
+    }
+
+    /**
+     * Record the classes of a Java archive
+     */
+    void add(final ManifestEntry owner, final List<ZipArchiveEntry> classes) {
+        if (owner == null || classes.isEmpty()) {
+            return;
+        }
+        final int ownerId = ownerId(owner);
+        // The entries of a package usually follow each other in the central directory
+        PackageClasses current = null;
+        for (ZipArchiveEntry entry : classes) {
+            final String name = className(entry.getName());
+            if (name == null) {
+                continue;
+            }
+            final int slash = name.lastIndexOf('/');
+            final int packageLength = Math.max(slash, 0);
+            if (current == null || current.name.length() != packageLength || !name.startsWith(current.name)) {
+                current = packages.computeIfAbsent(name.substring(0, packageLength), PackageClasses::new);
+            }
+            current.add(simpleNames.intern(name.substring(slash + 1)), ownerId, content(entry));
+        }
+    }
+
+    /**
+     * The CRC-32 and size of the class from the central directory, equal for classes with the same bytes
+     */
+    private static long content(final ZipArchiveEntry entry) {
+        return entry.getCrc() << 32 | (entry.getSize() & 0xffffffffL);
+    }
+
+    /**
+     * Record the manifest entry of a copy of an archive whose classes were recorded for another manifest entry
+     */
+    void addCopy(final ManifestEntry owner, final ManifestEntry copy) {
+        synchronized (owners) {
+            final Integer ownerId = ownerIds.get(owner);
+            if (ownerId != null && copy != null && ownerIds.putIfAbsent(copy, ownerId) == null) {
+                owners.get(ownerId).add(copy);
+            }
+        }
+    }
+
+    private int ownerId(final ManifestEntry owner) {
+        synchronized (owners) {
+            return ownerIds.computeIfAbsent(owner, o -> {
+                final List<ManifestEntry> copies = new ArrayList<>(1);
+                copies.add(o);
+                owners.add(copies);
+                return owners.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * The class name with slashes of a .class entry, without the class directory of a web application, null for
+     * module-info and package-info
+     */
+    private static String className(final String entryName) {
+        int start = 0;
+        for (String classDir : CLASS_DIRS) {
+            if (entryName.startsWith(classDir)) {
+                start = classDir.length();
+                break;
+            }
+        }
+        if (entryName.startsWith(VERSIONS_DIR)) {
+            final int versionEnd = entryName.indexOf('/', VERSIONS_DIR.length());
+            start = versionEnd < 0 ? 0 : versionEnd + 1;
+        }
+        final int end = entryName.length() - CLASS.length();
+        if (end <= start || entryName.endsWith("module-info.class") || entryName.endsWith("package-info.class")) {
+            return null;
+        }
+        return entryName.substring(start, end);
+    }
+
+    /**
+     * Manifest entries of the archives the class is in, empty if none
+     *
+     * @param fqcn fully qualified class name, e.g. com.google.inject.Guice
+     */
+    public Set<ManifestEntry> getManifests(final String fqcn) {
+        final int dot = fqcn.lastIndexOf('.');
+        final PackageClasses classes = packages.get(dot < 0 ? "" : fqcn.substring(0, dot).replace('.', '/'));
+        if (classes == null) {
+            return Collections.emptySet();
+        }
+        final Set<ManifestEntry> manifests = new LinkedHashSet<>();
+        synchronized (classes) {
+            final String simpleName = fqcn.substring(dot + 1);
+            for (int i = 0; i < classes.size; i++) {
+                if (classes.simpleNames[i].equals(simpleName)) {
+                    addOwners(manifests, classes.owners[i]);
+                }
+            }
+        }
+        return manifests;
+    }
+
+    /**
+     * Pass every class with the manifest entries of the archives it is in to the consumer, one package at a time.
+     * The entries are built on the fly and not kept by the index.
+     */
+    public void forEach(final Consumer<ClassEntries> consumer) {
+        for (PackageClasses classes : packages.values()) {
+            final Map<String, Set<ManifestEntry>> byName = new LinkedHashMap<>();
+            synchronized (classes) {
+                for (int i = 0; i < classes.size; i++) {
+                    addOwners(byName.computeIfAbsent(classes.simpleNames[i], n -> new LinkedHashSet<>()), classes.owners[i]);
+                }
+            }
+            final String prefix = classes.name.isEmpty() ? "" : classes.name.replace('/', '.') + '.';
+            byName.forEach((simpleName, manifests) -> consumer.accept(new ClassEntries(prefix + simpleName, manifests)));
+        }
+    }
+
+    /**
+     * Number of classes recorded, counting a class once for every archive it is in but once for all copies of an archive
+     */
+    public long size() {
+        long size = 0;
+        for (PackageClasses classes : packages.values()) {
+            synchronized (classes) {
+                size += classes.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Pass the classes of every package to the visitor, one package at a time
+     */
+    void forEachPackage(final PackageVisitor visitor) {
+        for (PackageClasses classes : packages.values()) {
+            synchronized (classes) {
+                visitor.visit(classes.name, classes.simpleNames, classes.owners, classes.contents, classes.size);
+            }
+        }
+    }
+
+    /**
+     * Manifest entries of the archive with the id and of its copies
+     */
+    List<ManifestEntry> getOwners(final int ownerId) {
+        synchronized (owners) {
+            return new ArrayList<>(owners.get(ownerId));
+        }
+    }
+
+    private void addOwners(final Collection<ManifestEntry> manifests, final int ownerId) {
+        synchronized (owners) {
+            manifests.addAll(owners.get(ownerId));
+        }
+    }
+
+    /**
+     * The classes of a package, see {@link #forEachPackage(PackageVisitor)}
+     */
+    interface PackageVisitor {
+
+        /**
+         * @param packageName the package name with slashes, empty for the default package
+         * @param simpleNames the simple names of the classes, a class is there once for every archive it is in
+         * @param owners      the ids of the archives the classes are in, see {@link #getOwners(int)}
+         * @param contents    the CRC-32 and size of the classes, equal for classes with the same bytes
+         * @param size        the number of classes, the arrays may be longer
+         */
+        void visit(String packageName, String[] simpleNames, int[] owners, long[] contents, int size);
+    }
+
+    /**
+     * The classes of a package, as simple names, owner ids and contents in parallel arrays
+     */
+    private static final class PackageClasses {
+
+        private final String name;
+
+        private String[] simpleNames = new String[8];
+
+        private int[] owners = new int[8];
+
+        private long[] contents = new long[8];
+
+        private int size;
+
+        private PackageClasses(final String name) {
+            this.name = name;
+        }
+
+        private synchronized void add(final String simpleName, final int ownerId, final long content) {
+            if (size == simpleNames.length) {
+                simpleNames = Arrays.copyOf(simpleNames, size * 2);
+                owners = Arrays.copyOf(owners, size * 2);
+                contents = Arrays.copyOf(contents, size * 2);
+            }
+            simpleNames[size] = simpleName;
+            owners[size] = ownerId;
+            contents[size] = content;
+            size++;
+        }
+    }
+}
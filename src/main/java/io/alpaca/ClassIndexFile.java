@@ -0,0 +1,355 @@
+package io.alpaca;
+
+import io.alpaca.models.ClassEntries;
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ClassIndex} written to a file, to look up the archives of a class without scanning again nor loading the file.
+ * <p/>
+ * The file is memory mapped. A lookup is a binary search over the class table, comparing the UTF-8 bytes of the class
+ * names in place, then reads the manifest entries of the archives the class is in. Layout, big endian:
+ * <pre>
+ * header:    magic, version, archive count, class count, archive table offset, class table offset
+ * archives:  per archive, the manifest entry fields as length-prefixed UTF-8 strings
+ * classes:   per class in UTF-8 byte order, the length-prefixed name, the archive count and the archive numbers
+ * tables:    the offsets of the archive records, then the offsets of the class records
+ * </pre>
+ * Files bigger than 2 GB are mapped in 1 GB chunks. No record crosses a chunk boundary, the writer pads in front of it.
+ */
+public final class ClassIndexFile implements Closeable {
+
+    private static final int MAGIC = 0x41434958; // ACIX
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 8;
+
+    // length of a null string
+    private static final int NULL_STRING = 0xffff;
+
+    private static final int CHUNK_SHIFT = 30;
+
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] chunks;
+
+    private final int archiveCount;
+
+    private final long classCount;
+
+    private final long archiveTable;
+
+    private final long classTable;
+
+    private ClassIndexFile(final FileChannel channel, final MappedByteBuffer[] chunks) throws IOException {
+        this.channel = channel;
+        this.chunks = chunks;
+        if (channel.size() < HEADER_SIZE || getInt(0) != MAGIC || getInt(4) != VERSION) {
+            throw new IOException("Not a class index file or of another version");
+        }
+        this.archiveCount = getInt(8);
+        this.classCount = getLong(12);
+        this.archiveTable = getLong(20);
+        this.classTable = getLong(28);
+    }
+
+    /**
+     * Map the index file, it is read on demand by the lookups
+     */
+    public static ClassIndexFile open(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            final MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                final long position = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+            }
+            return new ClassIndexFile(channel, chunks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write the classes of the index to the file, replacing it once complete
+     */
+    public static void write(final ClassIndex index, final Path file) throws IOException {
+        // Number the archives, and sort the classes by the bytes of their name as the lookup compares them
+        final Map<ManifestEntry, Integer> archiveNumbers = new HashMap<>();
+        final List<ManifestEntry> archives = new ArrayList<>();
+        final List<ClassRecord> classes = new ArrayList<>();
+        index.forEach(classEntries -> {
+            final int[] numbers = new int[classEntries.getManifests().size()];
+            int i = 0;
+            for (ManifestEntry manifestEntry : classEntries.getManifests()) {
+                numbers[i++] = archiveNumbers.computeIfAbsent(manifestEntry, m -> {
+                    archives.add(m);
+                    return archives.size() - 1;
+                });
+            }
+            classes.add(new ClassRecord(classEntries.getFqcn().getBytes(StandardCharsets.UTF_8), numbers));
+        });
+        for (ClassRecord record : classes) {
+            if (record.name.length >= NULL_STRING) {
+                throw new IOException("Class name too long to index: " + record.name.length + " bytes");
+            }
+        }
+        classes.sort((a, b) -> Arrays.compareUnsigned(a.name, b.name));
+
+        final Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path tmpFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(tmpFile)) {
+                final RecordWriter writer = new RecordWriter(output);
+                writer.out.writeInt(MAGIC);
+                writer.out.writeInt(VERSION);
+                writer.out.writeInt(archives.size());
+                writer.out.writeLong(classes.size());
+                // table offsets, known once the records are written
+                writer.out.writeLong(0);
+                writer.out.writeLong(0);
+
+                final long[] archiveOffsets = new long[archives.size()];
+                for (int i = 0; i < archives.size(); i++) {
+                    archiveOffsets[i] = writer.record(archiveRecord(archives.get(i)));
+                }
+                final long[] classOffsets = new long[classes.size()];
+                for (int i = 0; i < classes.size(); i++) {
+                    classOffsets[i] = writer.record(classes.get(i).toBytes());
+                }
+                final long archiveTable = writer.table(archiveOffsets);
+                final long classTable = writer.table(classOffsets);
+                writer.out.flush();
+
+                try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                    final ByteBuffer tables = ByteBuffer.allocate(16).putLong(archiveTable).putLong(classTable).flip();
+                    channel.write(tables, 20);
+                }
+            }
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * The class with the manifest entries of the archives it is in, empty if the index does not have it
+     *
+     * @param fqcn fully qualified class name, e.g. com.google.inject.Guice
+     */
+    public ClassEntries lookup(final String fqcn) {
+        final Set<ManifestEntry> manifests = new LinkedHashSet<>();
+        final byte[] name = fqcn.getBytes(StandardCharsets.UTF_8);
+        long low = 0;
+        long high = classCount - 1;
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final long record = getLong(classTable + middle * 8);
+            final int comparison = compare(record, name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                long position = record + 2 + getShort(record);
+                final int count = getInt(position);
+                for (int i = 0; i < count; i++) {
+                    position += 4;
+                    manifests.add(archive(getInt(position)));
+                }
+                break;
+            }
+        }
+        return new ClassEntries(fqcn, manifests);
+    }
+
+    /**
+     * Number of distinct classes in the index
+     */
+    public long size() {
+        return classCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mappings are released once the buffers are collected
+        channel.close();
+    }
+
+    private int compare(final long record, final byte[] name) {
+        final int length = getShort(record);
+        final ByteBuffer chunk = chunks[(int) (record >>> CHUNK_SHIFT)];
+        final int start = (int) (record & (CHUNK_SIZE - 1)) + 2;
+        for (int i = 0; i < Math.min(length, name.length); i++) {
+            final int comparison = Byte.toUnsignedInt(chunk.get(start + i)) - Byte.toUnsignedInt(name[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return length - name.length;
+    }
+
+    private ManifestEntry archive(final int number) {
+        if (number < 0 || number >= archiveCount) {
+            throw new IllegalStateException("Corrupt class index file, no archive " + number);
+        }
+        final long[] position = {getLong(archiveTable + number * 8L)};
+        final ManifestEntry manifestEntry = new ManifestEntry(string(position), string(position), string(position), string(position),
+                string(position), string(position), string(position), string(position), null);
+        manifestEntry.setBundles(string(position));
+        manifestEntry.setFingerprint(string(position));
+        return manifestEntry;
+    }
+
+    /**
+     * Read the length-prefixed string at the position and move the position after it, a length of 0xffff is null
+     */
+    private String string(final long[] position) {
+        final int length = getShort(position[0]);
+        position[0] += 2;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        final ByteBuffer chunk = chunks[(int) (position[0] >>> CHUNK_SHIFT)].duplicate();
+        chunk.position((int) (position[0] & (CHUNK_SIZE - 1)));
+        chunk.get(bytes);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getShort(final long position) {
+        return Short.toUnsignedInt(chunks[(int) (position >>> CHUNK_SHIFT)].getShort((int) (position & (CHUNK_SIZE - 1))));
+    }
+
+    private int getInt(final long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    private long getLong(final long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    private static byte[] archiveRecord(final ManifestEntry manifestEntry) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (String value : Arrays.asList(manifestEntry.getProductName(), manifestEntry.getProductVersion(), manifestEntry.getGroupId(),
+                manifestEntry.getArtifactId(), manifestEntry.getVersion(), manifestEntry.getJarFileName(), manifestEntry.getPomName(),
+                manifestEntry.getPath(), manifestEntry.getBundles(), manifestEntry.getFingerprint())) {
+            if (value == null) {
+                out.writeShort(NULL_STRING);
+            } else {
+                final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                if (utf8.length >= NULL_STRING) {
+                    throw new IOException("Too long to index: " + value.substring(0, 100) + "...");
+                }
+                out.writeShort(utf8.length);
+                out.write(utf8);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class ClassRecord {
+
+        private final byte[] name;
+
+        private final int[] archives;
+
+        private ClassRecord(final byte[] name, final int[] archives) {
+            this.name = name;
+            this.archives = archives;
+        }
+
+        private byte[] toBytes() {
+            final ByteBuffer record = ByteBuffer.allocate(2 + name.length + 4 + 4 * archives.length);
+            record.putShort((short) name.length).put(name).putInt(archives.length);
+            for (int archive : archives) {
+                record.putInt(archive);
+            }
+            return record.array();
+        }
+    }
+
+    /**
+     * Writes records so that none crosses a chunk boundary, and tables of 8 byte aligned offsets
+     */
+    private static final class RecordWriter {
+
+        private final CountingOutputStream counter;
+
+        private final DataOutputStream out;
+
+        private RecordWriter(final OutputStream output) {
+            this.counter = new CountingOutputStream(new BufferedOutputStream(output, 1 << 16));
+            this.out = new DataOutputStream(counter);
+        }
+
+        /**
+         * @return the offset of the record
+         */
+        private long record(final byte[] record) throws IOException {
+            if (record.length > CHUNK_SIZE) {
+                throw new IOException("Record too big to index: " + record.length + " bytes");
+            }
+            final long chunkEnd = ((counter.getByteCount() >>> CHUNK_SHIFT) + 1) << CHUNK_SHIFT;
+            if (counter.getByteCount() + record.length > chunkEnd) {
+                pad(chunkEnd - counter.getByteCount());
+            }
+            final long offset = counter.getByteCount();
+            out.write(record);
+            return offset;
+        }
+
+        /**
+         * @return the offset of the table
+         */
+        private long table(final long[] offsets) throws IOException {
+            pad((8 - counter.getByteCount() % 8) % 8);
+            final long offset = counter.getByteCount();
+            for (long value : offsets) {
+                out.writeLong(value);
+            }
+            return offset;
+        }
+
+        private void pad(final long length) throws IOException {
+            for (long i = 0; i < length; i++) {
+                out.write(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classes and packages found in more than one archive, from the CRC-32 and size of the class entries in the central
+ * directories, without reading the classes.
+ * <p/>
+ * Copies of an archive with the same bytes, which are scanned once, count as one archive, see {@link ClassIndex#addCopy}.
+ */
+public final class ConflictReport {
+
+    private final List<DuplicateClass> duplicateClasses = new ArrayList<>();
+
+    private final List<SplitPackage> splitPackages = new ArrayList<>();
+
+    private ConflictReport() {
+    }
+
+    public static ConflictReport of(final ClassIndex index) {
+        final ConflictReport report = new ConflictReport();
+        index.forEachPackage((packageName, simpleNames, owners, contents, size) -> {
+            // A package of a single archive has no conflict
+            int firstOwner = -1;
+            boolean split = false;
+            for (int i = 0; i < size && !split; i++) {
+                if (firstOwner < 0) {
+                    firstOwner = owners[i];
+                } else {
+                    split = owners[i] != firstOwner;
+                }
+            }
+            if (!split) {
+                return;
+            }
+            final String name = packageName.replace('/', '.');
+            final String prefix = name.isEmpty() ? "" : name + '.';
+            final Set<Integer> packageOwners = new LinkedHashSet<>();
+            // simple name -> owner id -> content, the first copy of a class in an archive, e.g. not its META-INF/versions copy
+            final Map<String, Map<Integer, Long>> classes = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                packageOwners.add(owners[i]);
+                classes.computeIfAbsent(simpleNames[i], n -> new HashMap<>(2)).putIfAbsent(owners[i], contents[i]);
+            }
+            report.splitPackages.add(new SplitPackage(name, manifests(index, packageOwners)));
+            classes.forEach((simpleName, classOwners) -> {
+                if (classOwners.size() > 1) {
+                    final boolean identical = classOwners.values().stream().distinct().count() == 1;
+                    report.duplicateClasses.add(new DuplicateClass(prefix + simpleName, identical, manifests(index, classOwners.keySet())));
+                }
+            });
+        });
+        report.duplicateClasses.sort(Comparator.comparing(DuplicateClass::getFqcn));
+        report.splitPackages.sort(Comparator.comparing(SplitPackage::getName));
+        return report;
+    }
+
+    private static Set<ManifestEntry> manifests(final ClassIndex index, final Set<Integer> owners) {
+        final Set<ManifestEntry> manifests = new LinkedHashSet<>();
+        for (int owner : owners) {
+            manifests.addAll(index.getOwners(owner));
+        }
+        return Collections.unmodifiableSet(manifests);
+    }
+
+    /**
+     * Classes found in more than one archive, by name
+     */
+    public List<DuplicateClass> getDuplicateClasses() {
+        return Collections.unmodifiableList(duplicateClasses);
+    }
+
+    /**
+     * Packages with classes in more than one archive, by name
+     */
+    public List<SplitPackage> getSplitPackages() {
+        return Collections.unmodifiableList(splitPackages);
+    }
+
+    public static final class DuplicateClass {
+
+        private final String fqcn;
+
+        private final boolean identical;
+
+        private final Set<ManifestEntry> manifests;
+
+        private DuplicateClass(final String fqcn, final boolean identical, final Set<ManifestEntry> manifests) {
+            this.fqcn = fqcn;
+            this.identical = identical;
+            this.manifests = manifests;
+        }
+
+        public String getFqcn() {
+            return fqcn;
+        }
+
+        /**
+         * True if the class has the same CRC-32 and size in all archives
+         */
+        public boolean isIdentical() {
+            return identical;
+        }
+
+        /**
+         * Manifest entries of the archives the class is in
+         */
+        public Set<ManifestEntry> getManifests() {
+            return manifests;
+        }
+    }
+
+    public static final class SplitPackage {
+
+        private final String name;
+
+        private final Set<ManifestEntry> manifests;
+
+        private SplitPackage(final String name, final Set<ManifestEntry> manifests) {
+            this.name = name;
+            this.manifests = manifests;
+        }
+
+        /**
+         * Package name, empty for the default package
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Manifest entries of the archives with classes in the package
+         */
+        public Set<ManifestEntry> getManifests() {
+            return manifests;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Write the manifest entries of a scan as a CycloneDX 1.5 JSON SBOM, streaming a component for every manifest entry as soon
+ * as it is found, see {@link Alpaca#scanManifestEntry(String, String, java.nio.file.Path, ScanOptions, Consumer)}.
+ * <p/>
+ * The components are flat, with their path as bom-ref, and the archives nested in an archive are its dependencies, following
+ * the nested paths, e.g. app.war → app.war!/WEB-INF/lib/guice-4.0.jar. An archive without manifest entry, e.g. a zip file,
+ * is a file component. The jars bundled in an uber jar are the components of the uber jar. Only the bom-refs are held in
+ * memory until the dependencies are written at the end, never the components. Archives extracted to the temp dir, without
+ * {@link ScanOptions#setInMemory(boolean)}, have no nested paths, so they have no dependencies.
+ */
+public class CycloneDxWriter implements Consumer<ManifestEntry>, Closeable {
+
+    static final String SPEC_VERSION = "1.5";
+
+    private static final String PROPERTY_PREFIX = "alpaca:";
+
+    private final JsonWriter json;
+
+    private final String productName;
+
+    private final String productVersion;
+
+    private boolean started = false;
+
+    // The archives written or nested in the ones written so far, by bom-ref
+    private final Map<String, Node> nodes = new TreeMap<>();
+
+    public CycloneDxWriter(final OutputStream output, final String productName, final String productVersion) {
+        this.json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024));
+        this.productName = productName;
+        this.productVersion = productVersion;
+    }
+
+    /**
+     * Write the component of the entry and flush it, so a downstream reader sees it right away.
+     */
+    @Override
+    public synchronized void accept(final ManifestEntry manifestEntry) {
+        try {
+            start();
+            final String path = manifestEntry.getPath();
+            json.beginObject();
+            writeCoordinates(manifestEntry.getGroupId(), manifestEntry.getArtifactId(), manifestEntry.getVersion(), manifestEntry.getJarFileName());
+            if (path != null) {
+                json.field("bom-ref", path);
+                node(path).written = true;
+            }
+            json.name("properties").beginArray();
+            writeProperty(PROPERTY_PREFIX + "path", path);
+            writeProperty(PROPERTY_PREFIX + "jarFileName", manifestEntry.getJarFileName());
+            writeProperty(PROPERTY_PREFIX + "fingerprint", manifestEntry.getFingerprint());
+            json.endArray();
+            writeBundles(manifestEntry.getBundles());
+            json.endObject();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The node of the archive at the path, a dependency of the archive it is nested in
+     */
+    private Node node(final String path) {
+        Node node = nodes.get(path);
+        if (node == null) {
+            node = new Node();
+            nodes.put(path, node);
+            final int separator = path.lastIndexOf(ManifestScanner.NESTED_PATH_SEPARATOR);
+            if (separator > 0) {
+                node(path.substring(0, separator)).dependencies.add(path);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * A file component for an archive without manifest entry, e.g. a tar.gz file
+     */
+    private void writeFile(final String path) throws IOException {
+        json.beginObject()
+                .field("type", "file")
+                .field("bom-ref", path)
+                .field("name", path.substring(path.lastIndexOf('/') + 1));
+        json.name("properties").beginArray();
+        writeProperty(PROPERTY_PREFIX + "path", path);
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * Write the bundled jars as the components of the current one
+     */
+    private void writeBundles(final String bundles) throws IOException {
+        if (bundles == null || bundles.isEmpty()) {
+            return;
+        }
+        json.name("components").beginArray();
+        for (String bundle : bundles.split(Alpaca.COMMA_SEPARATE)) {
+            writeBundle(bundle);
+        }
+        json.endArray();
+    }
+
+    /**
+     * A bundled jar, e.g. META-INF/maven/org.apache.maven/maven-model/3.6.3
+     */
+    private void writeBundle(final String bundle) throws IOException {
+        json.beginObject();
+        final String[] coordinates = bundle.startsWith(JarIndex.MAVEN_DIR) ? bundle.substring(JarIndex.MAVEN_DIR.length()).split("/") : null;
+        if (coordinates != null && coordinates.length == 3) {
+            writeCoordinates(coordinates[0], coordinates[1], coordinates[2], bundle);
+        } else {
+            json.field("type", "library").field("name", bundle);
+        }
+        json.name("properties").beginArray();
+        writeProperty(PROPERTY_PREFIX + "bundle", bundle);
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * Write the type, Maven coordinates and package URL of a library, named after the file if the artifact is unknown
+     */
+    private void writeCoordinates(final String groupId, final String artifactId, final String version, final String fileName) throws IOException {
+        final boolean knownGroup = isKnown(groupId);
+        final boolean knownArtifact = isKnown(artifactId);
+        final boolean knownVersion = isKnown(version);
+        json.field("type", "library");
+        if (knownGroup) {
+            json.field("group", groupId);
+        }
+        json.field("name", knownArtifact ? artifactId : fileName);
+        if (knownVersion) {
+            json.field("version", version);
+        }
+        if (knownGroup && knownArtifact) {
+            // e.g. pkg:maven/com.google.inject/guice@4.0.0
+            json.field("purl", "pkg:maven/" + encode(groupId) + "/" + encode(artifactId) + (knownVersion ? "@" + encode(version) : ""));
+        }
+    }
+
+    private void writeProperty(final String name, final String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            json.beginObject().field("name", name).field("value", value).endObject();
+        }
+    }
+
+    private static boolean isKnown(final String value) {
+        return value != null && !value.isEmpty() && !Alpaca.UNKNOWN.equals(value) && !"null".equals(value);
+    }
+
+    private static String encode(final String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Write the document up to the components array, the product being the component the SBOM describes
+     */
+    private void start() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        json.beginObject()
+                .field("bomFormat", "CycloneDX")
+                .field("specVersion", SPEC_VERSION)
+                .field("serialNumber", "urn:uuid:" + UUID.randomUUID())
+                .field("version", 1);
+        json.name("metadata").beginObject()
+                .field("timestamp", Instant.now().truncatedTo(ChronoUnit.SECONDS).toString());
+        json.name("tools").beginObject().name("components").beginArray()
+                .beginObject().field("type", "application").field("name", "alpaca").endObject()
+                .endArray().endObject();
+        if (productName != null && !productName.isEmpty()) {
+            json.name("component").beginObject()
+                    .field("type", "application")
+                    .field("name", productName)
+                    .field("version", productVersion)
+                    .endObject();
+        }
+        json.endObject();
+        json.name("components").beginArray();
+    }
+
+    /**
+     * End the document with the archives without manifest entry and the dependencies, which are empty if no file was scanned,
+     * leaving the output stream open: it is not owned by the writer, e.g. System.out
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            start();
+            for (Map.Entry<String, Node> node : nodes.entrySet()) {
+                if (!node.getValue().written) {
+                    writeFile(node.getKey());
+                }
+            }
+            json.endArray();
+            json.name("dependencies").beginArray();
+            for (Map.Entry<String, Node> node : nodes.entrySet()) {
+                final List<String> dependencies = node.getValue().dependencies;
+                if (!dependencies.isEmpty()) {
+                    Collections.sort(dependencies);
+                    json.beginObject().field("ref", node.getKey());
+                    json.name("dependsOn").beginArray();
+                    for (String dependency : dependencies) {
+                        json.value(dependency);
+                    }
+                    json.endArray().endObject();
+                }
+            }
+            json.endArray().endObject().newLine();
+        } finally {
+            json.flush();
+        }
+    }
+
+    /**
+     * An archive written or nested in one, with the bom-refs of the archives nested in it
+     */
+    private static final class Node {
+
+        private boolean written;
+
+        private final List<String> dependencies = new ArrayList<>();
+    }
+}
@@ -0,0 +1,190 @@
+package io.alpaca;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Walk a directory tree with a task per directory, so directories are listed in parallel.
+ * <p/>
+ * Excluded directories are pruned before they are listed, see {@link ScanOptions#getExcludes()}. Every file which passes the
+ * globs and size limits is handed over as soon as its directory is listed, so files are scanned while the walk goes on.
+ * Like {@link Files#walk(Path, java.nio.file.FileVisitOption...)}, symbolic links to directories are not followed.
+ */
+final class DirectoryCrawler {
+
+    private static final Logger LOG = Logger.getLogger(DirectoryCrawler.class);
+
+    private final Path root;
+
+    private final Executor executor;
+
+    private final BiConsumer<Path, BasicFileAttributes> files;
+
+    private final List<Glob> includes;
+
+    private final List<Glob> excludes;
+
+    private final long minFileSize;
+
+    private final long maxFileSize;
+
+    // Directories listed or waiting to be listed
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private DirectoryCrawler(final Path root, final ScanOptions options, final Executor executor,
+                             final BiConsumer<Path, BasicFileAttributes> files) {
+        this.root = root;
+        this.executor = executor;
+        this.files = files;
+        this.includes = Glob.compile(root.getFileSystem(), options.getIncludes());
+        this.excludes = Glob.compile(root.getFileSystem(), options.getExcludes());
+        this.minFileSize = options.getMinFileSize();
+        this.maxFileSize = options.getMaxFileSize();
+    }
+
+    /**
+     * Walk the directory, passing every file to scan and its attributes to the consumer from the directory listing tasks.
+     *
+     * @return completes when all directories are listed
+     */
+    static CompletableFuture<Void> crawl(final Path root, final ScanOptions options, final Executor executor,
+                                         final BiConsumer<Path, BasicFileAttributes> files) {
+        final DirectoryCrawler crawler = new DirectoryCrawler(root, options, executor, files);
+        crawler.submit(root);
+        return crawler.done;
+    }
+
+    private void submit(final Path dir) {
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    list(dir);
+                } finally {
+                    listed();
+                }
+            });
+        } catch (RuntimeException e) {
+            LOG.errorf(e, "Exception occurred while list up files in %s\n", dir);
+            listed();
+        }
+    }
+
+    private void listed() {
+        if (pending.decrementAndGet() == 0) {
+            done.complete(null);
+        }
+    }
+
+    private void list(final Path dir) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                visit(entry);
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            LOG.errorf(e, "Exception occurred while list up files in %s\n", dir);
+        }
+    }
+
+    private void visit(final Path entry) {
+        final Path relative = root.relativize(entry);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isSymbolicLink()) {
+                if (Files.isDirectory(entry)) {
+                    return;
+                }
+                attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+            } else if (attributes.isDirectory()) {
+                if (!Glob.prunes(excludes, relative)) {
+                    submit(entry);
+                }
+                return;
+            }
+        } catch (IOException e) {
+            // deleted since it was listed or a dangling link
+            LOG.debugf(e, "Failed to read the attributes of %s", entry);
+            return;
+        }
+        if (attributes.isRegularFile() && accept(relative, attributes.size())) {
+            files.accept(entry, attributes);
+        }
+    }
+
+    private boolean accept(final Path relative, final long size) {
+        return size >= minFileSize && size <= maxFileSize
+                && (includes.isEmpty() || Glob.matches(includes, relative))
+                && !Glob.matches(excludes, relative);
+    }
+
+    /**
+     * A glob without a slash matches the file or directory name at any depth, like in .gitignore, e.g. node_modules or *.jar.
+     * Other globs match the path relative to the scanned directory, e.g. build/**, which also matches the build directory itself
+     * when excluding, so it is pruned.
+     */
+    private static final class Glob {
+
+        private static final String ANY_PATH = "/**";
+
+        private final PathMatcher matcher;
+
+        private final boolean nameOnly;
+
+        // The directory whose whole content the glob matches, if it ends with /**
+        private final PathMatcher directory;
+
+        private Glob(final PathMatcher matcher, final boolean nameOnly, final PathMatcher directory) {
+            this.matcher = matcher;
+            this.nameOnly = nameOnly;
+            this.directory = directory;
+        }
+
+        static List<Glob> compile(final FileSystem fileSystem, final List<String> globs) {
+            return globs.stream()
+                    .map(glob -> new Glob(fileSystem.getPathMatcher("glob:" + glob), glob.indexOf('/') < 0,
+                            glob.endsWith(ANY_PATH) && glob.length() > ANY_PATH.length()
+                                    ? fileSystem.getPathMatcher("glob:" + glob.substring(0, glob.length() - ANY_PATH.length()))
+                                    : null))
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * Whether the directory is excluded with everything in it
+         */
+        static boolean prunes(final List<Glob> globs, final Path relative) {
+            for (Glob glob : globs) {
+                if (glob.directory != null && glob.directory.matches(relative)) {
+                    return true;
+                }
+            }
+            return matches(globs, relative);
+        }
+
+        static boolean matches(final List<Glob> globs, final Path relative) {
+            for (Glob glob : globs) {
+                if (glob.matcher.matches(glob.nameOnly ? relative.getFileName() : relative)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.alpaca;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+import static io.alpaca.Utils.isArchiveEntry;
+import static io.alpaca.Utils.isJavaArchiveEntry;
+
+/**
+ * The entries of a jar file which are of interest for the manifest detection, classified in one pass over its central directory.
+ */
+final class JarIndex {
+
+    static final String MAVEN_DIR = "META-INF/maven/";
+
+    static final String POM_XML = "/pom.xml";
+
+    static final String POM_PROPERTIES = "/pom.properties";
+
+    static final String CLASS = ".class";
+
+    private ZipArchiveEntry manifest;
+
+    private ZipArchiveEntry buildMetadata;
+
+    private final List<ZipArchiveEntry> pomFiles = new ArrayList<>();
+
+    // pom.properties files by name
+    private final Map<String, ZipArchiveEntry> pomProperties = new HashMap<>();
+
+    private final List<ZipArchiveEntry> nestedArchives = new ArrayList<>();
+
+    private final List<ZipArchiveEntry> classes = new ArrayList<>();
+
+    private JarIndex() {
+    }
+
+    static JarIndex of(final ZipFile zipFile) {
+        final JarIndex index = new JarIndex();
+        final Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+        while (entries.hasMoreElements()) {
+            index.add(entries.nextElement());
+        }
+        return index;
+    }
+
+    private void add(final ZipArchiveEntry entry) {
+        if (entry.isDirectory()) {
+            return;
+        }
+        final String name = entry.getName();
+        if (name.endsWith(CLASS)) {
+            classes.add(entry);
+        } else if (name.startsWith("META-INF/")) {
+            if (isMavenFile(name, POM_XML)) {
+                pomFiles.add(entry);
+            } else if (isMavenFile(name, POM_PROPERTIES)) {
+                pomProperties.put(name, entry);
+            } else if (name.equals(JarFile.MANIFEST_NAME)) {
+                manifest = entry;
+            } else if (buildMetadata == null && name.equals(Alpaca.buildMetadata)) {
+                buildMetadata = entry;
+            } else if (isNestedArchive(name)) {
+                nestedArchives.add(entry);
+            }
+        } else if (isNestedArchive(name)) {
+            nestedArchives.add(entry);
+        }
+    }
+
+    /**
+     * Same as {@code name.matches("META-INF/maven/.+/pom.xml")} without compiling a regex for every entry.
+     */
+    static boolean isMavenFile(final String name, final String fileName) {
+        return name.length() > MAVEN_DIR.length() + fileName.length()
+                && name.startsWith(MAVEN_DIR)
+                && name.endsWith(fileName);
+    }
+
+    static boolean isNestedArchive(final String name) {
+        return isJavaArchiveEntry(name) || isArchiveEntry(name);
+    }
+
+    /**
+     * META-INF/MANIFEST.MF or null
+     */
+    ZipArchiveEntry getManifest() {
+        return manifest;
+    }
+
+    /**
+     * META-INF/build.metadata or null
+     */
+    ZipArchiveEntry getBuildMetadata() {
+        return buildMetadata;
+    }
+
+    /**
+     * META-INF/maven/../pom.xml files in central directory order
+     */
+    List<ZipArchiveEntry> getPomFiles() {
+        return Collections.unmodifiableList(pomFiles);
+    }
+
+    /**
+     * META-INF/maven/../pom.properties file next to the pom.xml file or null
+     */
+    ZipArchiveEntry getPomProperties(final ZipArchiveEntry pomFile) {
+        final String name = pomFile.getName();
+        return pomProperties.get(name.substring(0, name.length() - POM_XML.length()) + POM_PROPERTIES);
+    }
+
+    /**
+     * Jar, war, zip, tar.gz, ... files inside of the jar file
+     */
+    List<ZipArchiveEntry> getNestedArchives() {
+        return Collections.unmodifiableList(nestedArchives);
+    }
+
+    /**
+     * .class files
+     */
+    List<ZipArchiveEntry> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+}
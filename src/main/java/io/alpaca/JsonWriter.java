@@ -0,0 +1,176 @@
+package io.alpaca;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal streaming JSON generator, writing straight to the underlying writer without building the document in memory.
+ */
+final class JsonWriter implements Flushable, Closeable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer writer;
+
+    // whether the object or array at each nesting level already has a member, to place the commas
+    private boolean[] hasMember = new boolean[16];
+
+    private int depth = 0;
+
+    // a name was just written, the value needs no comma
+    private boolean afterName = false;
+
+    JsonWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    JsonWriter name(final String name) throws IOException {
+        separate();
+        string(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(final String value) throws IOException {
+        separate();
+        if (value == null) {
+            writer.write("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(final long value) throws IOException {
+        separate();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    JsonWriter value(final boolean value) throws IOException {
+        separate();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Write a string member unless the value is null or empty, like {@code @JsonInclude(JsonInclude.Include.NON_EMPTY)}
+     */
+    JsonWriter field(final String name, final String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            name(name).value(value);
+        }
+        return this;
+    }
+
+    JsonWriter field(final String name, final long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * End a top level value with a new line, e.g. for newline delimited JSON
+     */
+    JsonWriter newLine() throws IOException {
+        writer.write('\n');
+        if (depth == 0) {
+            hasMember[0] = false;
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private JsonWriter open(final char bracket) throws IOException {
+        separate();
+        writer.write(bracket);
+        depth++;
+        if (depth == hasMember.length) {
+            final boolean[] grown = new boolean[hasMember.length * 2];
+            System.arraycopy(hasMember, 0, grown, 0, hasMember.length);
+            hasMember = grown;
+        }
+        hasMember[depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(final char bracket) throws IOException {
+        writer.write(bracket);
+        depth--;
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasMember[depth] && depth > 0) {
+            writer.write(',');
+        }
+        hasMember[depth] = true;
+    }
+
+    private void string(final String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            writer.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writer.write("\\u00");
+                    writer.write(HEX[c >> 4]);
+                    writer.write(HEX[c & 0xF]);
+            }
+        }
+        writer.write(value, start, length - start);
+        writer.write('"');
+    }
+}
@@ -0,0 +1,679 @@
+package io.alpaca;
+
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.MoreFiles;
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static io.alpaca.Utils.decompressArchive;
+import static io.alpaca.Utils.isJavaArchiveEntry;
+
+/**
+ * Scan a file or directory and the archives nested in it.
+ * <p/>
+ * Every archive is a task on the {@link ScanScheduler}. An archive task reads the archive, queues a task for each archive
+ * nested in it and completes when all of them complete, so no task ever waits for another one. Nested archives are queued as
+ * soon as they are read, and a reader ahead of the pools by {@link ScanOptions#getReadAhead()} archives scans the next ones itself.
+ * Nested archives are either extracted to {@link ScanOptions#getTmpDir()} or, with {@link ScanOptions#isInMemory()},
+ * opened straight from their parent's bytes, see {@link NestedArchive}.
+ */
+final class ManifestScanner {
+
+    private static final Logger LOG = Logger.getLogger(ManifestScanner.class);
+
+    /**
+     * Separates the path of an archive from the name of an entry in it, e.g. /tmp/app.war!/WEB-INF/lib/guice-4.0.jar
+     */
+    static final String NESTED_PATH_SEPARATOR = "!/";
+
+    private final String productName;
+
+    private final String productVersion;
+
+    private final ScanOptions options;
+
+    private final ScanScheduler scheduler;
+
+    private final Consumer<ManifestEntry> listener;
+
+    private final ScanStats stats;
+
+    // Whether the entries of the nested archives are merged into the results of their parents, see #collects()
+    private final boolean collect;
+
+    // Results of the nested archives scanned so far by content key, so copies of the same archive are scanned once
+    private final Map<String, Deduplicated> deduplicated = new ConcurrentHashMap<>();
+
+    ManifestScanner(final String productName, final String productVersion, final ScanOptions options, final ScanScheduler scheduler) {
+        this(productName, productVersion, options, scheduler, null);
+    }
+
+    /**
+     * @param listener called with every manifest entry as soon as it is found. The results are then not collected, so the scan
+     *                 yields no entries, unless the cache or the snapshot needs them, see {@link #collects()}.
+     */
+    ManifestScanner(final String productName, final String productVersion, final ScanOptions options, final ScanScheduler scheduler,
+                    final Consumer<ManifestEntry> listener) {
+        this.productName = productName;
+        this.productVersion = productVersion;
+        this.options = options;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.stats = options.getStats() != null ? options.getStats() : ScanStats.NONE;
+        this.collect = listener == null || options.getCache() != null || options.getSnapshot() != null;
+    }
+
+    CompletableFuture<Set<ManifestEntry>> scan(final Path path) {
+        final long start = System.nanoTime();
+        return scanPath(path)
+                .thenApply(manifests -> listener != null ? Collections.<ManifestEntry>emptySet() : sorted(manifests))
+                .whenComplete((manifests, e) -> stats.record(ScanStats.Phase.SCAN, start));
+    }
+
+    /**
+     * Whether the entries of every archive are merged into the results of its parent, as the scan returns them.
+     * <p/>
+     * A scan streaming its entries to a listener holds none of them: every archive yields no entries, and copies of the same
+     * archive are scanned again instead of reusing the results of the first one. Except with a cache, which stores the entries
+     * of every archive, or a snapshot, which stores the entries of every file.
+     */
+    boolean collects() {
+        return collect;
+    }
+
+    private CompletableFuture<Set<ManifestEntry>> scanPath(final Path path) {
+        final ScanSnapshot snapshot = options.getSnapshot();
+        if (snapshot != null) {
+            snapshot.begin(path.toFile().getAbsolutePath(), productName, productVersion);
+        }
+        // Check if the input path is a directory?
+        if (Files.isDirectory(path) && !Files.isRegularFile(path)) {
+            return submit(scheduler.io(), path.toString(), () -> scanDirectory(path));
+        }
+        if (snapshot == null) {
+            return submit(scheduler.io(), path.toString(), () -> scanFile(path, 0));
+        }
+        return submit(scheduler.io(), path.toString(), () -> {
+            try {
+                return scanTopLevel(path, Files.readAttributes(path, BasicFileAttributes.class));
+            } catch (IOException e) {
+                LOG.errorf(e, "Exception occurred while reading %s\n", path);
+                return CompletableFuture.completedFuture(Collections.<ManifestEntry>emptySet());
+            }
+        });
+    }
+
+    private CompletableFuture<Set<ManifestEntry>> scanDirectory(final Path dir) {
+        // The results of every file, merged once the last one is scanned
+        final Queue<Set<ManifestEntry>> fileResults = new ConcurrentLinkedQueue<>();
+        final CompletableFuture<Set<ManifestEntry>> scanned = new CompletableFuture<>();
+        // One for the walk, one for each file being scanned
+        final AtomicInteger pending = new AtomicInteger(1);
+        final Runnable finished = () -> {
+            if (pending.decrementAndGet() == 0) {
+                scanned.complete(union(fileResults, null));
+            }
+        };
+        // Files are queued for scanning as soon as their directory is listed
+        DirectoryCrawler.crawl(dir, options, scheduler.io(), (file, attributes) -> {
+            pending.incrementAndGet();
+            submit(scheduler.io(), file.toString(), () -> scanTopLevel(file, attributes)).thenAccept(fileManifests -> {
+                // Entries are streamed to the listener, do not hold them until the whole directory is scanned
+                if (listener == null) {
+                    fileResults.add(fileManifests);
+                }
+                finished.run();
+            });
+        }).thenRun(finished);
+        return scanned;
+    }
+
+    /**
+     * Scan a file given as or found in the scanned directory, unless the snapshot of the previous scan has it unchanged
+     */
+    private CompletableFuture<Set<ManifestEntry>> scanTopLevel(final Path file, final BasicFileAttributes attributes) {
+        final ScanSnapshot snapshot = options.getSnapshot();
+        if (snapshot == null || options.getClassIndex() != null) {
+            return scanFile(file, 0);
+        }
+        final String path = file.toFile().getAbsolutePath();
+        final long size = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final Set<ManifestEntry> unchanged = snapshot.get(path, size, lastModified);
+        if (unchanged != null) {
+            unchanged.forEach(this::found);
+            return CompletableFuture.completedFuture(unchanged);
+        }
+        return scanFile(file, 0).thenApply(manifests -> {
+            snapshot.put(path, size, lastModified, manifests);
+            return manifests;
+        });
+    }
+
+    /**
+     * @param depth the nesting depth of the file, 0 for a scanned file, 1 for a file extracted from it, ...
+     */
+    private CompletableFuture<Set<ManifestEntry>> scanFile(final Path file, final int depth) {
+        final var jarPathToFile = file.toFile();
+        final var jarAbsolutePath = jarPathToFile.getAbsolutePath();
+        final var jarFileName = jarPathToFile.getName();
+
+        // Check if the file is an archive? Read its first bytes once, before opening it as an archive
+        final ArchiveType type;
+        final long probeStart = System.nanoTime();
+        try {
+            type = ArchiveType.of(file);
+            stats.record(ScanStats.Phase.PROBE, probeStart);
+        } catch (IOException e) {
+            LOG.errorf(e, "Exception occurred while reading %s\n", file);
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+        final boolean archive = isArchive(jarFileName, type);
+        if (archive && !type.isSupported()) {
+            skipped(jarAbsolutePath, type);
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+        return cached(() -> FileChannel.open(file, StandardOpenOption.READ), MoreFiles.asByteSource(file), jarAbsolutePath, jarFileName, () -> {
+            stats.archive(depth);
+            return options.isInMemory()
+                    ? scanFileInMemory(file, type, archive, jarAbsolutePath, jarFileName)
+                    : extractFile(file, type, archive, jarAbsolutePath, jarFileName, depth);
+        });
+    }
+
+    /**
+     * Java archives are known by their name, as a jar may not start with a zip header, e.g. an executable jar with a
+     * launch script in front. A jar which cannot be read still gets an Unknown manifest entry.
+     * Other files are archives if their first bytes say so.
+     *
+     * @return true for an archive to read the entries of, false for a Java archive to make a manifest entry of
+     */
+    private static boolean isArchive(final String fileName, final ArchiveType type) {
+        return !isJavaArchiveEntry(fileName) || type.isTar();
+    }
+
+    private static void skipped(final String path, final ArchiveType type) {
+        if (type != ArchiveType.UNKNOWN) {
+            LOG.debugf("Skipping %s, %s archives are not supported", path, type);
+        }
+    }
+
+    /**
+     * Decompress the archive file and scan the files in it
+     */
+    private CompletableFuture<Set<ManifestEntry>> extractFile(final Path file, final ArchiveType type, final boolean archive,
+                                                             final String jarAbsolutePath, final String jarFileName, final int depth) {
+        final String tmpDir = options.getTmpDir() + File.separator + UUID.randomUUID() + File.separator;
+        final List<CompletableFuture<Set<ManifestEntry>>> extracted = new ArrayList<>();
+        ManifestEntry manifestEntry = null;
+        try {
+            // Decompress the nested archives only: the manifest and Maven files of a jar are read from the jar itself
+            final var targetUnzipDir = tmpDir + file;
+            // Every file is scanned as soon as it is written, while the next ones are decompressed
+            final Semaphore readAhead = new Semaphore(options.getReadAhead());
+            final long extractStart = System.nanoTime();
+            // time spent scanning instead of decompressing, and size of the decompressed files
+            final long[] scanNanos = new long[1];
+            final long[] bytesOut = new long[1];
+            final Set<String> archiveEntries = scheduler.withOpenArchive(() -> decompressArchive(file, targetUnzipDir, type, JarIndex::isNestedArchive, archiveEntry -> {
+                final long scanStart = System.nanoTime();
+                if (stats.isEnabled()) {
+                    bytesOut[0] += new File(archiveEntry).length();
+                }
+                extracted.add(submitReadAhead(readAhead, scheduler.io(), archiveEntry, () -> scanExtracted(Paths.get(archiveEntry), depth + 1)));
+                scanNanos[0] += System.nanoTime() - scanStart;
+            }));
+            stats.record(ScanStats.Phase.EXTRACT, extractStart + scanNanos[0]);
+            stats.extracted(archiveEntries.size(), stats.isEnabled() ? file.toFile().length() : 0, bytesOut[0]);
+            if (!archive) {
+                manifestEntry = scheduler.withOpenArchive(() -> {
+                    try (ZipFile jarFile = openZip(file, type)) {
+                        final long indexStart = System.nanoTime();
+                        final JarIndex index = JarIndex.of(jarFile);
+                        stats.addTime(ScanStats.Phase.CENTRAL_DIRECTORY, indexStart);
+                        return indexClasses(Alpaca.scanJavaArchive(productName, productVersion, jarFileName, jarAbsolutePath, jarFile, index, stats), index);
+                    } catch (IOException e) {
+                        // java.util.zip.ZipException: zip END header not found
+                        return Alpaca.unknownManifestEntry(productName, productVersion, jarFileName, jarAbsolutePath);
+                    }
+                });
+                if (manifestEntry == null) {
+                    LOG.warnf("Failed to generate manifest from %s", file);
+                }
+                found(manifestEntry);
+            }
+        } catch (Exception e) {
+            LOG.errorf(e, "Exception occurred while processing %s\n", file);
+        }
+
+        return merge(extracted, manifestEntry).whenComplete((manifests, e) -> {
+            // Clean up decompressed dir
+            FileUtils.deleteQuietly(Paths.get(tmpDir).toFile());
+        });
+    }
+
+    /**
+     * Scan a file extracted from an archive, once for all copies of the same archive
+     */
+    private CompletableFuture<Set<ManifestEntry>> scanExtracted(final Path file, final int depth) {
+        final String key;
+        try {
+            key = MoreFiles.asByteSource(file).hash(Hashing.crc32()).padToLong() + ":" + Files.size(file) + ":" + file.getFileName();
+        } catch (IOException e) {
+            LOG.debugf(e, "Failed to read %s", file);
+            return scanFile(file, depth);
+        }
+        return deduplicated(key, file.toFile().getAbsolutePath(), () -> scanFile(file, depth));
+    }
+
+    /**
+     * Scan the archive file and the archives nested in it without extracting them
+     */
+    private CompletableFuture<Set<ManifestEntry>> scanFileInMemory(final Path file, final ArchiveType type, final boolean archive,
+                                                                  final String jarAbsolutePath, final String jarFileName) {
+        final List<CompletableFuture<Set<ManifestEntry>>> nested = new ArrayList<>();
+        ManifestEntry manifestEntry = null;
+        try {
+            manifestEntry = scheduler.withOpenArchive(() -> {
+                if (archive && type.isTar()) {
+                    try (InputStream input = Files.newInputStream(file)) {
+                        scanTar(type, jarAbsolutePath, input, nested);
+                    }
+                    return null;
+                }
+                try (ZipFile zipFile = openZip(file, type)) {
+                    return scanZip(archive, jarFileName, jarAbsolutePath, zipFile, nested);
+                } catch (IOException e) {
+                    if (archive) {
+                        throw e;
+                    }
+                    return found(Alpaca.unknownManifestEntry(productName, productVersion, jarFileName, jarAbsolutePath));
+                }
+            });
+        } catch (Exception e) {
+            LOG.errorf(e, "Exception occurred while processing %s\n", file);
+        }
+        return merge(nested, manifestEntry);
+    }
+
+    /**
+     * Scan an archive nested in another archive.
+     *
+     * @param entryName the name of the archive entry in its parent
+     * @param path      the path of the archive entry including the path of its parent
+     */
+    private CompletableFuture<Set<ManifestEntry>> scanNested(final String entryName, final String path, final NestedArchive nestedArchive) {
+        final String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return deduplicated(nestedArchive.key(fileName), path, () -> cached(nestedArchive::open, nestedArchive.asByteSource(), path, fileName, () -> {
+            final List<CompletableFuture<Set<ManifestEntry>>> nested = new ArrayList<>();
+            ManifestEntry manifestEntry = null;
+            try {
+                final long probeStart = System.nanoTime();
+                final ArchiveType type = nestedArchive.type();
+                stats.record(ScanStats.Phase.PROBE, probeStart);
+                final boolean archive = isArchive(fileName, type);
+                if (archive && !type.isSupported()) {
+                    skipped(path, type);
+                    return CompletableFuture.completedFuture(Collections.emptySet());
+                }
+                if (stats.isEnabled()) {
+                    stats.archive(depth(path));
+                }
+                final ScanScheduler.ArchiveTask<ManifestEntry> task = () -> {
+                    if (archive && type.isTar()) {
+                        try (InputStream input = Channels.newInputStream(nestedArchive.open())) {
+                            scanTar(type, path, input, nested);
+                        }
+                        return null;
+                    }
+                    try (SeekableByteChannel channel = nestedArchive.open();
+                         ZipFile zipFile = openZip(channel, path, type)) {
+                        return scanZip(archive, fileName, path, zipFile, nested);
+                    } catch (IOException e) {
+                        if (archive) {
+                            throw e;
+                        }
+                        return found(Alpaca.unknownManifestEntry(productName, productVersion, fileName, path));
+                    }
+                };
+                // A spilled archive is a file to open
+                manifestEntry = nestedArchive.isSpilled() ? scheduler.withOpenArchive(task) : task.run();
+            } catch (Exception e) {
+                LOG.errorf(e, "Exception occurred while processing %s\n", path);
+            }
+            return merge(nested, manifestEntry);
+        }));
+    }
+
+    /**
+     * Queue a task for every archive nested in a zip or Java archive, and scan the Java archive itself.
+     *
+     * @param archive true for a zip, false for a Java archive
+     * @return the manifest entry of the Java archive
+     */
+    private ManifestEntry scanZip(final boolean archive, final String fileName, final String path, final ZipFile zipFile,
+                                  final List<CompletableFuture<Set<ManifestEntry>>> nested) throws IOException {
+        final long indexStart = System.nanoTime();
+        final JarIndex index = JarIndex.of(zipFile);
+        stats.addTime(ScanStats.Phase.CENTRAL_DIRECTORY, indexStart);
+        final Semaphore readAhead = new Semaphore(options.getReadAhead());
+        for (ZipArchiveEntry entry : index.getNestedArchives()) {
+            try (InputStream input = zipFile.getInputStream(entry)) {
+                final long extractStart = System.nanoTime();
+                final NestedArchive nestedArchive = NestedArchive.read(input, entry.getSize(), entry.getCrc(), options);
+                stats.record(ScanStats.Phase.EXTRACT, extractStart);
+                stats.extracted(1, entry.getCompressedSize(), nestedArchive.size());
+                nested.add(submitNested(entry.getName(), path, nestedArchive, readAhead));
+            }
+        }
+        if (archive) {
+            return null;
+        }
+        final ManifestEntry manifestEntry = indexClasses(Alpaca.scanJavaArchive(productName, productVersion, fileName, path, zipFile, index, stats), index);
+        if (manifestEntry == null) {
+            LOG.warnf("Failed to generate manifest from %s", path);
+        }
+        return found(manifestEntry);
+    }
+
+    /**
+     * Queue a task for every archive in a tar or tar.gz stream.
+     */
+    private void scanTar(final ArchiveType type, final String path, final InputStream input,
+                         final List<CompletableFuture<Set<ManifestEntry>>> nested) throws IOException {
+        final InputStream bi = new BufferedInputStream(input);
+        final InputStream tarInput = type == ArchiveType.GZIP ? new GzipCompressorInputStream(bi) : bi;
+        final Semaphore readAhead = new Semaphore(options.getReadAhead());
+        try (TarArchiveInputStream i = new TarArchiveInputStream(tarInput)) {
+            ArchiveEntry entry;
+            while ((entry = i.getNextEntry()) != null) {
+                if (entry.isDirectory() || !i.canReadEntryData(entry) || !JarIndex.isNestedArchive(entry.getName())) {
+                    continue;
+                }
+                final long extractStart = System.nanoTime();
+                final NestedArchive nestedArchive = NestedArchive.read(i, entry.getSize(), -1, options);
+                stats.record(ScanStats.Phase.EXTRACT, extractStart);
+                stats.extracted(1, nestedArchive.size(), nestedArchive.size());
+                nested.add(submitNested(entry.getName(), path, nestedArchive, readAhead));
+            }
+        }
+    }
+
+    private CompletableFuture<Set<ManifestEntry>> submitNested(final String entryName, final String parentPath, final NestedArchive nestedArchive,
+                                                               final Semaphore readAhead) {
+        final String path = parentPath + NESTED_PATH_SEPARATOR + entryName;
+        // Archives in memory need no I/O
+        final Executor executor = nestedArchive.isSpilled() ? scheduler.io() : scheduler.cpu();
+        return submitReadAhead(readAhead, executor, path, () -> scanNested(entryName, path, nestedArchive))
+                .whenComplete((manifests, e) -> {
+                    try {
+                        nestedArchive.close();
+                    } catch (IOException ex) {
+                        LOG.debugf(ex, "Failed to delete the spill file of %s", path);
+                    }
+                });
+    }
+
+    private CompletableFuture<Set<ManifestEntry>> cached(final ScanCache.ChannelSource channel, final ByteSource content,
+                                                         final String path, final String fileName,
+                                                         final Supplier<CompletableFuture<Set<ManifestEntry>>> scanner) {
+        final ScanCache cache = options.getCache();
+        // A cache hit has no classes
+        if (cache == null || options.getClassIndex() != null) {
+            return scanner.get();
+        }
+        final AtomicBoolean scanned = new AtomicBoolean();
+        final CompletableFuture<Set<ManifestEntry>> manifests = cache.scan(productName, productVersion, channel, content, path, fileName, options.getTmpDir(), () -> {
+            scanned.set(true);
+            return scanner.get();
+        });
+        if (!scanned.get() && listener != null) {
+            // A cache hit, the entries were not found by this scan yet
+            manifests.thenAccept(cached -> cached.forEach(listener));
+        }
+        return manifests;
+    }
+
+    /**
+     * Open a zip or Java archive file. A Java archive which does not start with a zip header may have a launch script in front.
+     */
+    private ZipFile openZip(final Path file, final ArchiveType type) throws IOException {
+        if (type == ArchiveType.ZIP) {
+            final long start = System.nanoTime();
+            final ZipFile zipFile = new ZipFile(file.toFile());
+            stats.record(ScanStats.Phase.CENTRAL_DIRECTORY, start);
+            return zipFile;
+        }
+        final SeekableByteChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return openZip(channel, file.toString(), type);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ZipFile openZip(final SeekableByteChannel channel, final String path, final ArchiveType type) throws IOException {
+        final long start = System.nanoTime();
+        final ZipFile zipFile = new ZipFile(type == ArchiveType.ZIP ? channel : PrefixedZipChannel.wrap(channel), path, "UTF8", true);
+        stats.record(ScanStats.Phase.CENTRAL_DIRECTORY, start);
+        return zipFile;
+    }
+
+    /**
+     * Scan the first copy of an archive, and reuse its results for the other copies with their own paths.
+     * Copies found while the first one is being scanned wait for it instead of scanning it again.
+     *
+     * @param key  the content key of the archive, see {@link NestedArchive#key(String)}
+     * @param path the path of this copy
+     */
+    private CompletableFuture<Set<ManifestEntry>> deduplicated(final String key, final String path,
+                                                               final Supplier<CompletableFuture<Set<ManifestEntry>>> scanner) {
+        if (!collect) {
+            // no results to reuse
+            return scanner.get();
+        }
+        final Deduplicated first = new Deduplicated(path);
+        final Deduplicated scanned = deduplicated.putIfAbsent(key, first);
+        if (scanned == null) {
+            try {
+                scanner.get().whenComplete((manifests, e) -> {
+                    if (e != null) {
+                        first.manifests.completeExceptionally(e);
+                    } else {
+                        first.manifests.complete(manifests);
+                    }
+                });
+            } catch (RuntimeException e) {
+                first.manifests.completeExceptionally(e);
+            }
+            return first.manifests;
+        }
+
+        LOG.debugf("Reusing the results of %s for the same archive %s", scanned.path, path);
+        return scanned.manifests.thenApply(manifests -> {
+            final Set<ManifestEntry> rebased = Sets.newHashSetWithExpectedSize(manifests.size());
+            final ClassIndex classIndex = options.getClassIndex();
+            for (ManifestEntry manifestEntry : manifests) {
+                final ManifestEntry copy = rebase(manifestEntry, scanned.path, path);
+                if (classIndex != null) {
+                    classIndex.addCopy(manifestEntry, copy);
+                }
+                rebased.add(found(copy));
+            }
+            return rebased;
+        });
+    }
+
+    /**
+     * Copy the entry of an archive or of an archive nested in it, moving it from the path of the archive to another path
+     */
+    private static ManifestEntry rebase(final ManifestEntry manifestEntry, final String fromPath, final String toPath) {
+        final ManifestEntry rebased = new ManifestEntry(manifestEntry);
+        final String entryPath = manifestEntry.getPath();
+        if (entryPath != null && (entryPath.equals(fromPath) || entryPath.startsWith(fromPath + NESTED_PATH_SEPARATOR))) {
+            rebased.setPath(toPath + entryPath.substring(fromPath.length()));
+        }
+        return rebased;
+    }
+
+    /**
+     * Nesting depth of an archive from its path, e.g. 2 for app.zip!/app.war!/WEB-INF/lib/guice-4.0.jar
+     */
+    private static int depth(final String path) {
+        int depth = 0;
+        for (int i = path.indexOf(NESTED_PATH_SEPARATOR); i >= 0; i = path.indexOf(NESTED_PATH_SEPARATOR, i + NESTED_PATH_SEPARATOR.length())) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Record the classes of a Java archive, if classes are indexed
+     */
+    private ManifestEntry indexClasses(final ManifestEntry manifestEntry, final JarIndex index) {
+        final ClassIndex classIndex = options.getClassIndex();
+        if (classIndex != null) {
+            classIndex.add(manifestEntry, index.getClasses());
+        }
+        return manifestEntry;
+    }
+
+    /**
+     * Pass a manifest entry to the listener as soon as it is found
+     */
+    private ManifestEntry found(final ManifestEntry manifestEntry) {
+        if (manifestEntry != null && listener != null) {
+            listener.accept(manifestEntry);
+        }
+        return manifestEntry;
+    }
+
+    /**
+     * Queue a task, a failed task yields no manifest entries.
+     */
+    private static CompletableFuture<Set<ManifestEntry>> submit(final Executor executor, final String path,
+                                                                final Supplier<CompletableFuture<Set<ManifestEntry>>> task) {
+        return CompletableFuture.supplyAsync(task, executor)
+                .thenCompose(future -> future)
+                .exceptionally(e -> {
+                    LOG.errorf(e, "Exception occurred while processing %s\n", path);
+                    return Collections.emptySet();
+                });
+    }
+
+    /**
+     * Queue a task for an archive read from its parent, unless the parent's reader is too far ahead of the pools, see
+     * {@link ScanOptions#getReadAhead()}: the reader then runs the task itself, as waiting for the pools could deadlock.
+     *
+     * @param readAhead the permits of the reader, one for every archive it queued which is not scanned yet
+     */
+    private static CompletableFuture<Set<ManifestEntry>> submitReadAhead(final Semaphore readAhead, final Executor executor, final String path,
+                                                                         final Supplier<CompletableFuture<Set<ManifestEntry>>> task) {
+        if (!readAhead.tryAcquire()) {
+            return submit(Runnable::run, path, task);
+        }
+        return submit(executor, path, () -> {
+            try {
+                return task.get();
+            } finally {
+                readAhead.release();
+            }
+        });
+    }
+
+    /**
+     * Combine the manifest entries of an archive and of the archives nested in it once all of them are scanned, or only wait
+     * for them if the results are not collected.
+     */
+    private CompletableFuture<Set<ManifestEntry>> merge(final List<CompletableFuture<Set<ManifestEntry>>> nested,
+                                                        final ManifestEntry manifestEntry) {
+        final CompletableFuture<Void> scanned = CompletableFuture.allOf(nested.toArray(new CompletableFuture[0]));
+        if (!collect) {
+            return scanned.thenApply(v -> Collections.emptySet());
+        }
+        return scanned.thenApply(v -> union(nested.stream().map(CompletableFuture::join).collect(Collectors.toList()), manifestEntry));
+    }
+
+    /**
+     * Combine the results of the tasks of a level on the thread completing the level. Every task built its own set, which is
+     * only read here, so no lock is needed.
+     *
+     * @param manifestEntry the entry of the archive of the level, or null
+     */
+    private static Set<ManifestEntry> union(final Collection<Set<ManifestEntry>> results, final ManifestEntry manifestEntry) {
+        int size = manifestEntry != null ? 1 : 0;
+        for (Set<ManifestEntry> result : results) {
+            size += result.size();
+        }
+        final Set<ManifestEntry> manifests = Sets.newHashSetWithExpectedSize(size);
+        if (manifestEntry != null) {
+            manifests.add(manifestEntry);
+        }
+        results.forEach(manifests::addAll);
+        return manifests;
+    }
+
+    /**
+     * The scan results in {@link ManifestEntry#ORDER}, so that they come out the same whichever task finished first
+     */
+    private static Set<ManifestEntry> sorted(final Set<ManifestEntry> manifests) {
+        final Set<ManifestEntry> sorted = new TreeSet<>(ManifestEntry.ORDER);
+        sorted.addAll(manifests);
+        return sorted;
+    }
+
+    /**
+     * The results of the first copy of an archive, see {@link #deduplicated(String, String, Supplier)}
+     */
+    private static final class Deduplicated {
+
+        private final String path;
+
+        private final CompletableFuture<Set<ManifestEntry>> manifests = new CompletableFuture<>();
+
+        private Deduplicated(final String path) {
+            this.path = path;
+        }
+    }
+}
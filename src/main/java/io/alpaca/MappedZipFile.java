@@ -0,0 +1,257 @@
+package io.alpaca;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.deflate64.Deflate64CompressorInputStream;
+import org.apache.commons.compress.utils.BoundedSeekableByteChannelInputStream;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A zip file read by random access: the central directory is mapped and parsed once, and the data of an entry is read
+ * from its local file header only when asked for, so entries which are not needed are never read.
+ * <p/>
+ * Unlike a zip stream, which has to inflate every entry in front of the ones it needs, this reads a few entries of a
+ * multi-gigabyte installer in little more time than its central directory. ZIP64 files and files with bytes in front of
+ * the zip data, e.g. executable jars, are supported.
+ */
+final class MappedZipFile implements Closeable {
+
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final int DEFLATE64 = 9;
+
+    private static final int BZIP2 = 12;
+
+    private static final int ENCRYPTED_FLAG = 1;
+
+    // The name is UTF-8, else it is in the original zip code page, see APPNOTE.TXT 4.4.4
+    private static final int UTF8_FLAG = 0x800;
+
+    private static final Charset CP437 = Charset.forName("IBM437");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+
+    private final long prefix;
+
+    private final List<Entry> entries;
+
+    private MappedZipFile(final FileChannel channel, final long prefix, final List<Entry> entries) {
+        this.channel = channel;
+        this.prefix = prefix;
+        this.entries = entries;
+    }
+
+    /**
+     * Open the zip file and read its central directory
+     *
+     * @throws ZipException if the file is not a zip file or its central directory is corrupt
+     */
+    static MappedZipFile open(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final CentralDirectory centralDirectory = CentralDirectory.locate(channel);
+            if (centralDirectory.getSize() > Integer.MAX_VALUE) {
+                throw new ZipException("Central directory too big: " + centralDirectory.getSize() + " bytes");
+            }
+            final MappedByteBuffer headers = channel.map(FileChannel.MapMode.READ_ONLY, centralDirectory.getPosition(), centralDirectory.getSize());
+            headers.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedZipFile(channel, centralDirectory.getPrefix(), entries(headers, centralDirectory.getEntries()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static List<Entry> entries(final ByteBuffer headers, final long count) throws ZipException {
+        final List<Entry> entries = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int position = 0;
+        while (position + CentralDirectory.CENTRAL_FILE_HEADER_SIZE <= headers.limit()
+                && headers.getInt(position) == CentralDirectory.CENTRAL_FILE_HEADER_SIGNATURE) {
+            final int flags = Short.toUnsignedInt(headers.getShort(position + 8));
+            final int method = Short.toUnsignedInt(headers.getShort(position + 10));
+            final long crc = Integer.toUnsignedLong(headers.getInt(position + 16));
+            final int nameLength = Short.toUnsignedInt(headers.getShort(position + 28));
+            final int extraLength = Short.toUnsignedInt(headers.getShort(position + 30));
+            final int commentLength = Short.toUnsignedInt(headers.getShort(position + 32));
+            final int namePosition = position + CentralDirectory.CENTRAL_FILE_HEADER_SIZE;
+            if (namePosition + nameLength + extraLength > headers.limit()) {
+                throw new ZipException("Truncated central directory");
+            }
+            // size, compressed size and local header offset, in the order of the ZIP64 extra field
+            final long[] values = {
+                    Integer.toUnsignedLong(headers.getInt(position + 24)),
+                    Integer.toUnsignedLong(headers.getInt(position + 20)),
+                    Integer.toUnsignedLong(headers.getInt(position + 42))
+            };
+            CentralDirectory.zip64Values(headers, namePosition + nameLength, extraLength, values);
+            final byte[] name = new byte[nameLength];
+            headers.position(namePosition);
+            headers.get(name);
+            entries.add(new Entry(new String(name, (flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : CP437), flags, method, crc, values[0], values[1], values[2]));
+            position = namePosition + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    /**
+     * The entries in the order of the central directory
+     */
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Read the data of the entry, only reading the file from the local file header of the entry on
+     *
+     * @throws ZipException if the entry is encrypted or compressed with an unsupported method, see {@link Entry#canReadData()}
+     */
+    InputStream getInputStream(final Entry entry) throws IOException {
+        if (!entry.canReadData()) {
+            throw new ZipException("Unsupported compression method " + entry.method + " or encryption of " + entry.name);
+        }
+        // The name and extra field lengths of the local file header may differ from the central file header ones
+        final long headerPosition = prefix + entry.localHeaderOffset;
+        final ByteBuffer header = ByteBuffer.allocate(LOCAL_FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, headerPosition + header.position()) < 0) {
+                throw new ZipException("Truncated zip file, no local file header for " + entry.name);
+            }
+        }
+        if (header.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("Corrupt local file header of " + entry.name);
+        }
+        final long dataPosition = headerPosition + LOCAL_FILE_HEADER_SIZE
+                + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+        final InputStream data = new BoundedSeekableByteChannelInputStream(dataPosition, entry.compressedSize, channel);
+        switch (entry.method) {
+            case DEFLATED:
+                return new EntryInflaterInputStream(data);
+            case DEFLATE64:
+                return new Deflate64CompressorInputStream(data);
+            case BZIP2:
+                return new BZip2CompressorInputStream(data);
+            default:
+                return data;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * An entry of the central directory
+     */
+    static final class Entry {
+
+        private final String name;
+
+        private final int flags;
+
+        private final int method;
+
+        private final long crc;
+
+        private final long size;
+
+        private final long compressedSize;
+
+        private final long localHeaderOffset;
+
+        private Entry(final String name, final int flags, final int method, final long crc, final long size,
+                      final long compressedSize, final long localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        /**
+         * The uncompressed size
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * False for encrypted entries and entries compressed with a method other than deflate, deflate64 and bzip2
+         */
+        boolean canReadData() {
+            return (flags & ENCRYPTED_FLAG) == 0
+                    && (method == STORED || method == DEFLATED || method == DEFLATE64 || method == BZIP2);
+        }
+    }
+
+    /**
+     * Inflates raw deflate data, which needs a dummy byte after its end, like java.util.zip.ZipFile does
+     */
+    private static final class EntryInflaterInputStream extends InflaterInputStream {
+
+        private boolean eof;
+
+        private EntryInflaterInputStream(final InputStream data) {
+            super(data, new Inflater(true), BUFFER_SIZE);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len < 0) {
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            inf.end();
+        }
+    }
+}
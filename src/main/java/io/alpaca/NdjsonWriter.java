@@ -0,0 +1,83 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Write manifest entries as newline delimited JSON, one object per line, as soon as they are found.
+ * <p/>
+ * e.g. {"groupId":"com.google.inject","artifactId":"guice","version":"4.0.0","jarFileName":"guice-4.0.jar","path":"/tmp/guice-4.0.jar"}
+ */
+public class NdjsonWriter implements Consumer<ManifestEntry>, Closeable {
+
+    private final JsonWriter json;
+
+    public NdjsonWriter(final OutputStream output) {
+        this.json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024));
+    }
+
+    /**
+     * Write the entry and flush the line, so a downstream reader sees it right away.
+     */
+    @Override
+    public synchronized void accept(final ManifestEntry manifestEntry) {
+        try {
+            writeManifestEntry(json, manifestEntry);
+            json.newLine();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the entry with a "change" member, e.g. "added" or "removed" for the delta of an incremental scan
+     */
+    public synchronized void acceptChange(final String change, final ManifestEntry manifestEntry) {
+        try {
+            json.beginObject().field("change", change);
+            writeFields(json, manifestEntry);
+            json.endObject().newLine();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the fields of the entry which are serialized as JSON, see the annotations of {@link ManifestEntry}
+     */
+    static void writeManifestEntry(final JsonWriter json, final ManifestEntry manifestEntry) throws IOException {
+        json.beginObject();
+        writeFields(json, manifestEntry);
+        json.endObject();
+    }
+
+    private static void writeFields(final JsonWriter json, final ManifestEntry manifestEntry) throws IOException {
+        json.field("productName", manifestEntry.getProductName())
+                .field("productVersion", manifestEntry.getProductVersion())
+                .field("groupId", manifestEntry.getGroupId())
+                .field("artifactId", manifestEntry.getArtifactId())
+                .field("version", manifestEntry.getVersion())
+                .field("jarFileName", manifestEntry.getJarFileName())
+                .field("path", manifestEntry.getPath())
+                .field("bundles", manifestEntry.getBundles())
+                .field("fingerprint", manifestEntry.getFingerprint());
+    }
+
+    /**
+     * Flush the entries, leaving the output stream open: it is not owned by the writer, e.g. System.out
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        json.flush();
+    }
+}
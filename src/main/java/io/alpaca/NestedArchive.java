@@ -0,0 +1,147 @@
+package io.alpaca;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.MoreFiles;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * An archive nested in another archive, read straight from its parent's bytes.
+ * <p/>
+ * Small archives are held in memory, archives bigger than {@link ScanOptions#getSpillThreshold()} are spilled to a temp file
+ * which is deleted on {@link #close()}. The archive can be read after its parent is closed.
+ */
+final class NestedArchive implements Closeable {
+
+    // Leave some head room below Integer.MAX_VALUE, arrays cannot be that big on most VMs
+    private static final long MAX_IN_MEMORY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final byte[] bytes;
+
+    private final Path spillFile;
+
+    private final long size;
+
+    private final long crc;
+
+    private NestedArchive(final byte[] bytes, final Path spillFile, final long size, final long crc) {
+        this.bytes = bytes;
+        this.spillFile = spillFile;
+        this.size = size;
+        this.crc = crc;
+    }
+
+    /**
+     * Read an archive entry from its parent.
+     *
+     * @param input the entry data, not closed by this method
+     * @param size  the uncompressed entry size or -1 if unknown
+     * @param crc   the CRC32 of the entry from the central directory of a zip parent, or -1 to compute it while reading
+     */
+    static NestedArchive read(final InputStream input, final long size, final long crc, final ScanOptions options) throws IOException {
+        final CheckedInputStream checkedInput = crc < 0 ? new CheckedInputStream(input, new CRC32()) : null;
+        final InputStream data = checkedInput != null ? checkedInput : input;
+        final long threshold = Math.min(options.getSpillThreshold(), MAX_IN_MEMORY_SIZE);
+        if (size >= 0 && size <= threshold) {
+            final byte[] bytes = IOUtils.toByteArray(data, size);
+            return new NestedArchive(bytes, null, bytes.length, crc(crc, checkedInput));
+        }
+
+        // Size is unknown or too big: buffer up to the threshold, then spill the rest if there is more
+        final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        final long copied = size < 0 ? IOUtils.copyLarge(data, head, 0, threshold + 1) : 0;
+        if (size < 0 && copied <= threshold) {
+            return new NestedArchive(head.toByteArray(), null, copied, crc(crc, checkedInput));
+        }
+
+        final Path tmpDir = Paths.get(options.getTmpDir());
+        Files.createDirectories(tmpDir);
+        final Path spillFile = Files.createTempFile(tmpDir, "nested-", ".tmp");
+        final long spilledSize;
+        try (OutputStream output = Files.newOutputStream(spillFile)) {
+            head.writeTo(output);
+            spilledSize = head.size() + IOUtils.copyLarge(data, output);
+        } catch (IOException e) {
+            Files.deleteIfExists(spillFile);
+            throw e;
+        }
+        return new NestedArchive(null, spillFile, spilledSize, crc(crc, checkedInput));
+    }
+
+    private static long crc(final long crc, final CheckedInputStream checkedInput) {
+        return checkedInput != null ? checkedInput.getChecksum().getValue() : crc;
+    }
+
+    /**
+     * Key of the archive content and name, equal for copies of the same archive, e.g. the same jar in many WAR files.
+     * The name is part of it as the detection depends on it, see {@link Alpaca#scanJavaArchive}.
+     */
+    String key(final String fileName) {
+        return Long.toHexString(crc) + ':' + size + ':' + fileName;
+    }
+
+    /**
+     * The uncompressed size of the archive
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Open a new channel on the archive bytes, the caller closes it.
+     */
+    SeekableByteChannel open() throws IOException {
+        if (bytes != null) {
+            return new SeekableInMemoryByteChannel(bytes);
+        }
+        return FileChannel.open(spillFile, StandardOpenOption.READ);
+    }
+
+    /**
+     * Detect the archive type from the first bytes
+     */
+    ArchiveType type() throws IOException {
+        if (bytes != null) {
+            return ArchiveType.of(bytes, Math.min(bytes.length, ArchiveType.HEADER_SIZE));
+        }
+        return ArchiveType.of(spillFile);
+    }
+
+    /**
+     * The archive bytes, e.g. for fingerprinting.
+     */
+    ByteSource asByteSource() {
+        if (bytes != null) {
+            return ByteSource.wrap(bytes);
+        }
+        return MoreFiles.asByteSource(spillFile);
+    }
+
+    /**
+     * True if the archive was spilled to a temp file, so opening it opens a file.
+     */
+    boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spillFile != null) {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+}
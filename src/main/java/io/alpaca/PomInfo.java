@@ -0,0 +1,191 @@
+package io.alpaca;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.pull.EntityReplacementMap;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The coordinates of a Maven project read from its META-INF/maven/../pom.xml or pom.properties file.
+ * <p/>
+ * Only groupId, artifactId, version, name and the parent groupId and version are read, instead of the whole Maven model.
+ */
+final class PomInfo {
+
+    private static final String PROJECT = "project";
+
+    private static final String PARENT = "parent";
+
+    private static final String GROUP_ID = "groupId";
+
+    private static final String ARTIFACT_ID = "artifactId";
+
+    private static final String VERSION = "version";
+
+    private static final String NAME = "name";
+
+    // The Maven POM element order puts these sections after the project coordinates, see https://maven.apache.org/developers/conventions/code.html#pom-code-convention
+    private static final Set<String> SECTIONS_AFTER_COORDINATES = Set.of("modules", "scm", "issueManagement", "ciManagement",
+            "distributionManagement", "properties", "dependencyManagement", "dependencies", "repositories", "pluginRepositories",
+            "build", "reporting", "profiles");
+
+    private String groupId;
+
+    private String artifactId;
+
+    private String version;
+
+    private String name;
+
+    private boolean hasParent;
+
+    private String parentGroupId;
+
+    private String parentVersion;
+
+    private PomInfo() {
+    }
+
+    /**
+     * Read the pom.xml entry, stopping as soon as the coordinates are found
+     */
+    static PomInfo readPom(final ZipFile jarFile, final ZipArchiveEntry pomFile) throws IOException, XmlPullParserException {
+        try (InputStream input = jarFile.getInputStream(pomFile)) {
+            return readPom(input);
+        }
+    }
+
+    static PomInfo readPom(final InputStream input) throws IOException, XmlPullParserException {
+        // Same parser set up as MavenXpp3Reader: detect the encoding from the XML declaration and accept HTML entities
+        final MXParser parser = new MXParser(EntityReplacementMap.defaultEntityReplacementMap);
+        parser.setInput(ReaderFactory.newXmlReader(input));
+
+        final PomInfo pom = new PomInfo();
+        boolean inParent = false;
+        boolean parentDone = false;
+        int event;
+        while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.END_TAG) {
+                if (inParent && parser.getDepth() == 2) {
+                    inParent = false;
+                    parentDone = true;
+                }
+            } else if (event == XmlPullParser.START_TAG) {
+                final int depth = parser.getDepth();
+                final String element = parser.getName();
+                if (depth == 1 && !PROJECT.equals(element)) {
+                    throw new XmlPullParserException("Expected root element 'project' but found '" + element + "'", parser, null);
+                } else if (depth == 2) {
+                    if (SECTIONS_AFTER_COORDINATES.contains(element) && pom.hasCoordinates(parentDone)) {
+                        // no name before the sections, e.g. a POM without name
+                        break;
+                    } else if (PARENT.equals(element)) {
+                        pom.hasParent = true;
+                        inParent = true;
+                    } else if (GROUP_ID.equals(element)) {
+                        pom.groupId = text(parser);
+                    } else if (ARTIFACT_ID.equals(element)) {
+                        pom.artifactId = text(parser);
+                    } else if (VERSION.equals(element)) {
+                        pom.version = text(parser);
+                    } else if (NAME.equals(element)) {
+                        pom.name = text(parser);
+                    }
+                } else if (depth == 3 && inParent) {
+                    if (GROUP_ID.equals(element)) {
+                        pom.parentGroupId = text(parser);
+                    } else if (VERSION.equals(element)) {
+                        pom.parentVersion = text(parser);
+                    }
+                }
+                if (pom.name != null && pom.hasCoordinates(parentDone)) {
+                    break;
+                }
+            }
+        }
+        return pom;
+    }
+
+    /**
+     * Whether the groupId, artifactId and version are known, the groupId and version inherited from the parent if the POM has
+     * none. The parent comes first in the Maven POM element order.
+     */
+    private boolean hasCoordinates(final boolean parentDone) {
+        return (!hasParent || parentDone)
+                && artifactId != null
+                && (groupId != null || parentGroupId != null)
+                && (version != null || parentVersion != null);
+    }
+
+    /**
+     * Read the pom.properties entry, which Maven writes with the resolved groupId, artifactId and version but no name nor parent
+     */
+    static PomInfo readProperties(final ZipFile jarFile, final ZipArchiveEntry pomProperties) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream input = jarFile.getInputStream(pomProperties)) {
+            properties.load(input);
+        }
+        final PomInfo pom = new PomInfo();
+        pom.groupId = trim(properties.getProperty(GROUP_ID));
+        pom.artifactId = trim(properties.getProperty(ARTIFACT_ID));
+        pom.version = trim(properties.getProperty(VERSION));
+        return pom;
+    }
+
+    /**
+     * The version of a bundled project, from its pom.properties if the jar has one, else from its pom.xml
+     */
+    static String readVersion(final ZipFile jarFile, final JarIndex index, final ZipArchiveEntry pomFile) throws IOException, XmlPullParserException {
+        final ZipArchiveEntry pomProperties = index.getPomProperties(pomFile);
+        if (pomProperties != null) {
+            final String version = readProperties(jarFile, pomProperties).getVersion();
+            if (version != null) {
+                return version;
+            }
+        }
+        return readPom(jarFile, pomFile).getVersion();
+    }
+
+    private static String text(final MXParser parser) throws IOException, XmlPullParserException {
+        return trim(parser.nextText());
+    }
+
+    private static String trim(final String value) {
+        return value != null ? value.trim() : null;
+    }
+
+    String getGroupId() {
+        return groupId;
+    }
+
+    String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * The project version or, if it inherits it, the parent version
+     */
+    String getVersion() {
+        return version != null ? version : parentVersion;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean hasParent() {
+        return hasParent;
+    }
+
+    String getParentGroupId() {
+        return parentGroupId;
+    }
+}
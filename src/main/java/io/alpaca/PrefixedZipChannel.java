@@ -0,0 +1,87 @@
+package io.alpaca;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.ZipException;
+
+/**
+ * A view of a zip file which skips the bytes in front of it, e.g. the launch script of an executable jar.
+ * <p/>
+ * The offsets in the central directory of such a file count from the start of the zip data, not from the start of the file.
+ * java.util.zip handles this, commons-compress {@link org.apache.commons.compress.archivers.zip.ZipFile} does not.
+ */
+final class PrefixedZipChannel implements SeekableByteChannel {
+
+    private final SeekableByteChannel channel;
+
+    private final long prefix;
+
+    private PrefixedZipChannel(final SeekableByteChannel channel, final long prefix) {
+        this.channel = channel;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Skip the bytes in front of the zip data, if any, else return the channel as is.
+     * The returned channel closes the given one.
+     */
+    static SeekableByteChannel wrap(final SeekableByteChannel channel) throws IOException {
+        final long prefix = prefixLength(channel);
+        return prefix > 0 ? new PrefixedZipChannel(channel, prefix) : channel;
+    }
+
+    /**
+     * The number of bytes in front of the zip data, 0 if none or unknown
+     */
+    private static long prefixLength(final SeekableByteChannel channel) throws IOException {
+        try {
+            return CentralDirectory.locate(channel).getPrefix();
+        } catch (ZipException e) {
+            // not a zip file, leave it to the zip reader
+            return 0;
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        return channel.read(dst);
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        return channel.position() - prefix;
+    }
+
+    @Override
+    public SeekableByteChannel position(final long newPosition) throws IOException {
+        channel.position(newPosition + prefix);
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size() - prefix;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
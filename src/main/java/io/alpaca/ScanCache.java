@@ -0,0 +1,339 @@
+package io.alpaca;
+
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.io.FileUtils;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+
+/**
+ * On-disk cache of scan results, keyed by the fingerprint of the scanned archive, see {@link ArchiveFingerprint}.
+ * <p/>
+ * Each archive maps to the manifest entries of the archive itself and of the archives nested in it. The entries are stored
+ * without product name and version, and with their path relative to the archive, so the same archive found again at another
+ * path or for another product is a hit. The temp dirs in the paths of archives extracted by the scan are stored as
+ * placeholders, and replaced by new temp dirs of the current scan on a hit, as the ones of the scan which cached them are gone. The least recently used entries are evicted when the cache grows over its size cap.
+ * The cache is dropped as a whole when {@link #VERSION} does not match, so bump it whenever the detection logic changes.
+ */
+public final class ScanCache {
+
+    private static final Logger LOG = Logger.getLogger(ScanCache.class);
+
+    /**
+     * Version of the detection logic, i.e. of the cached results.
+     */
+    static final int VERSION = 3;
+
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+
+    private static final String VERSION_FILE = "version";
+
+    private static final String ENTRY_SUFFIX = ".ser";
+
+    // e.g. /tmp/alpaca/1234/0c58ae24-c6cd-4904-9c06-ac0ceb58c0ea, the random part of an extraction dir, see ManifestScanner
+    private static final String EXTRACT_DIR = "([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})";
+
+    // The extraction dir number n in the cached paths
+    private static final String EXTRACT_DIR_PLACEHOLDER = "{extracted:%d}";
+
+    private static final Pattern EXTRACT_DIR_PLACEHOLDERS = Pattern.compile("\\{extracted:(\\d+)}");
+
+    private final Path cacheDir;
+
+    private final long maxSize;
+
+    // cache key -> entry size in bytes
+    private final Map<String, Long> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong size = new AtomicLong();
+
+    private ScanCache(final Path cacheDir, final long maxSize) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Open the cache in the directory, creating it if needed.
+     */
+    public static ScanCache open(final Path cacheDir, final long maxSize) throws IOException {
+        final ScanCache cache = new ScanCache(cacheDir, maxSize);
+        final Path versionFile = cacheDir.resolve(VERSION_FILE);
+        final String version = String.valueOf(VERSION);
+        if (Files.isDirectory(cacheDir) && !(Files.isRegularFile(versionFile) && version.equals(Files.readString(versionFile).trim()))) {
+            LOG.infof("Dropping scan cache %s of another version", cacheDir);
+            FileUtils.deleteDirectory(cacheDir.toFile());
+        }
+        Files.createDirectories(cacheDir);
+        Files.writeString(versionFile, version);
+
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                    .forEach(file -> {
+                        try {
+                            final long fileSize = Files.size(file);
+                            cache.entries.put(key(file), fileSize);
+                            cache.size.addAndGet(fileSize);
+                        } catch (IOException e) {
+                            // concurrently evicted
+                        }
+                    });
+        }
+        return cache;
+    }
+
+    /**
+     * Fingerprint of an archive, from its central directory for a zip or Java archive, else from all its bytes.
+     *
+     * @param channel  opens the archive bytes
+     * @param content  the archive bytes
+     * @param fileName the archive file name which is part of the detection, see {@link Alpaca#scanJavaArchive}
+     */
+    static String fingerprint(final ChannelSource channel, final ByteSource content, final String fileName) throws IOException {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        try (SeekableByteChannel opened = channel.open()) {
+            hasher.putString(ArchiveFingerprint.of(opened), StandardCharsets.UTF_8);
+        } catch (ZipException e) {
+            // e.g. a tar file
+            content.copyTo(Funnels.asOutputStream(hasher));
+        }
+        hasher.putString(fileName, StandardCharsets.UTF_8);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Return the cached results of the archive or scan it and cache the results.
+     *
+     * @param channel opens the archive bytes to fingerprint
+     * @param content the archive bytes to fingerprint if it is not a zip file
+     * @param path    the path of the archive, nested entries are relative to it
+     * @param tmpDir  the dir the scan extracts archives to, see {@link ScanOptions#getTmpDir()}
+     * @param scanner scans the archive on a cache miss
+     */
+    CompletableFuture<Set<ManifestEntry>> scan(final String productName, final String productVersion, final ChannelSource channel,
+                                               final ByteSource content, final String path, final String fileName, final String tmpDir,
+                                               final Supplier<CompletableFuture<Set<ManifestEntry>>> scanner) {
+        final Pattern extractDirs = Pattern.compile(Pattern.quote(new File(tmpDir).getAbsolutePath() + File.separator) + EXTRACT_DIR);
+        String key = null;
+        try {
+            key = fingerprint(channel, content, fileName);
+            final List<ManifestEntry> cached = get(key);
+            if (cached != null) {
+                // new extraction dirs, the same for all entries of the archive
+                final Map<String, String> newExtractDirs = new HashMap<>();
+                return CompletableFuture.completedFuture(cached.stream()
+                        .map(manifestEntry -> fromCache(manifestEntry, productName, productVersion, path, tmpDir, newExtractDirs))
+                        .collect(Collectors.toSet()));
+            }
+        } catch (IOException e) {
+            LOG.warnf(e, "Failed to look up %s in the scan cache", path);
+        }
+
+        final String cacheKey = key;
+        return scanner.get().thenApply(manifests -> {
+            if (cacheKey != null) {
+                // numbers of the extraction dirs
+                final Map<String, Integer> extractDirNumbers = new HashMap<>();
+                put(cacheKey, manifests.stream()
+                        .map(manifestEntry -> toCache(manifestEntry, path, extractDirs, extractDirNumbers))
+                        .collect(Collectors.toCollection(ArrayList::new)));
+            }
+            return manifests;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    List<ManifestEntry> get(final String key) {
+        if (!entries.containsKey(key)) {
+            return null;
+        }
+        final Path file = file(key);
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file));
+             ObjectInputStream objectInput = new ObjectInputStream(input)) {
+            final List<ManifestEntry> manifests = (List<ManifestEntry>) objectInput.readObject();
+            // The modification time is the last access time for the LRU eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return manifests;
+        } catch (NoSuchFileException e) {
+            // concurrently evicted
+            remove(key);
+        } catch (Exception e) {
+            // e.g. a model class changed without bumping VERSION
+            LOG.debugf(e, "Dropping unreadable scan cache entry %s", file);
+            delete(key);
+        }
+        return null;
+    }
+
+    void put(final String key, final ArrayList<ManifestEntry> manifests) {
+        final Path file = file(key);
+        try {
+            Files.createDirectories(file.getParent());
+            final Path tmpFile = Files.createTempFile(file.getParent(), key, ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tmpFile));
+                 ObjectOutputStream objectOutput = new ObjectOutputStream(output)) {
+                objectOutput.writeObject(manifests);
+            }
+            final long fileSize = Files.size(tmpFile);
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final Long previousSize = entries.put(key, fileSize);
+            size.addAndGet(fileSize - (previousSize == null ? 0 : previousSize));
+        } catch (IOException e) {
+            LOG.warnf(e, "Failed to write scan cache entry %s", file);
+        }
+        if (size.get() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Evict the least recently used entries until the cache is at 90% of its size cap.
+     */
+    private synchronized void evict() {
+        if (size.get() <= maxSize) {
+            return;
+        }
+        final List<Path> files = new ArrayList<>();
+        for (String key : entries.keySet()) {
+            files.add(file(key));
+        }
+        final Map<Path, FileTime> lastAccess = new HashMap<>();
+        for (Path file : files) {
+            try {
+                lastAccess.put(file, Files.getLastModifiedTime(file));
+            } catch (IOException e) {
+                lastAccess.put(file, FileTime.fromMillis(0));
+            }
+        }
+        files.sort(Comparator.comparing(lastAccess::get));
+
+        final long targetSize = maxSize / 10 * 9;
+        for (Path file : files) {
+            if (size.get() <= targetSize) {
+                break;
+            }
+            delete(key(file));
+        }
+    }
+
+    private void delete(final String key) {
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            LOG.debugf(e, "Failed to delete scan cache entry %s", key);
+        }
+        remove(key);
+    }
+
+    private void remove(final String key) {
+        final Long fileSize = entries.remove(key);
+        if (fileSize != null) {
+            size.addAndGet(-fileSize);
+        }
+    }
+
+    private Path file(final String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static String key(final Path file) {
+        final String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length());
+    }
+
+    private static ManifestEntry toCache(final ManifestEntry manifestEntry, final String path, final Pattern extractDirs,
+                                         final Map<String, Integer> extractDirNumbers) {
+        final ManifestEntry cached = new ManifestEntry(manifestEntry);
+        cached.setProductName(null);
+        cached.setProductVersion(null);
+        final String entryPath = manifestEntry.getPath();
+        if (entryPath != null && (entryPath.equals(path) || entryPath.startsWith(path + ManifestScanner.NESTED_PATH_SEPARATOR))) {
+            cached.setPath(entryPath.substring(path.length()));
+        } else if (entryPath != null) {
+            // e.g. /tmp/alpaca/1234/0c58ae24-c6cd-4904-9c06-ac0ceb58c0ea/in/app.war/app.war/WEB-INF/lib/guice-4.0.jar
+            final Matcher matcher = extractDirs.matcher(entryPath);
+            final StringBuilder cachedPath = new StringBuilder();
+            int end = 0;
+            while (matcher.find()) {
+                final int number = extractDirNumbers.computeIfAbsent(matcher.group(1), dir -> extractDirNumbers.size());
+                cachedPath.append(entryPath, end, matcher.start()).append(String.format(EXTRACT_DIR_PLACEHOLDER, number));
+                end = matcher.end();
+            }
+            if (end > 0) {
+                cached.setPath(cachedPath.append(entryPath, end, entryPath.length()).toString());
+            }
+        }
+        return cached;
+    }
+
+    private static ManifestEntry fromCache(final ManifestEntry cached, final String productName, final String productVersion, final String path,
+                                           final String tmpDir, final Map<String, String> newExtractDirs) {
+        final ManifestEntry manifestEntry = new ManifestEntry(cached);
+        manifestEntry.setProductName(productName);
+        manifestEntry.setProductVersion(productVersion);
+        final String entryPath = cached.getPath();
+        if (entryPath != null && (entryPath.isEmpty() || entryPath.startsWith(ManifestScanner.NESTED_PATH_SEPARATOR))) {
+            manifestEntry.setPath(path + entryPath);
+        } else if (entryPath != null) {
+            final Matcher matcher = EXTRACT_DIR_PLACEHOLDERS.matcher(entryPath);
+            final StringBuilder rebased = new StringBuilder();
+            int end = 0;
+            while (matcher.find()) {
+                rebased.append(entryPath, end, matcher.start()).append(newExtractDirs.computeIfAbsent(matcher.group(1),
+                        number -> new File(tmpDir).getAbsolutePath() + File.separator + UUID.randomUUID()));
+                end = matcher.end();
+            }
+            if (end > 0) {
+                manifestEntry.setPath(rebased.append(entryPath, end, entryPath.length()).toString());
+            }
+        }
+        return manifestEntry;
+    }
+
+    /**
+     * Opens a new channel on the bytes of an archive, the caller closes it
+     */
+    @FunctionalInterface
+    interface ChannelSource {
+
+        SeekableByteChannel open() throws IOException;
+    }
+}
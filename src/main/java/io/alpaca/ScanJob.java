@@ -0,0 +1,79 @@
+package io.alpaca;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A row of a batch job file: the product name and version to scan a path for.
+ * <p/>
+ * Rows are separated by tabs, or by commas if there is no tab: productName,productVersion,path. The path is the last field, so
+ * it may contain the separator. A row with only a path is scanned for the default product. Blank lines and lines starting with
+ * # are skipped.
+ */
+final class ScanJob {
+
+    private static final String TAB = "\t";
+
+    private static final String COMMENT = "#";
+
+    private final String productName;
+
+    private final String productVersion;
+
+    private final Path path;
+
+    ScanJob(final String productName, final String productVersion, final Path path) {
+        this.productName = productName;
+        this.productVersion = productVersion;
+        this.path = path;
+    }
+
+    /**
+     * Read the rows of a job file or of stdin
+     *
+     * @throws IllegalArgumentException if a row has two fields
+     */
+    static List<ScanJob> read(final BufferedReader reader, final String defaultProductName, final String defaultProductVersion) throws IOException {
+        final List<ScanJob> jobs = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith(COMMENT)) {
+                continue;
+            }
+            final String[] fields = line.split(line.contains(TAB) ? TAB : Alpaca.COMMA_SEPARATE, 3);
+            if (fields.length == 1) {
+                jobs.add(new ScanJob(defaultProductName, defaultProductVersion, Paths.get(fields[0].trim())));
+            } else if (fields.length == 3) {
+                jobs.add(new ScanJob(fields[0].trim(), fields[1].trim(), Paths.get(fields[2].trim())));
+            } else {
+                throw new IllegalArgumentException("Line " + lineNumber + " is not productName,productVersion,path: " + line);
+            }
+        }
+        return jobs;
+    }
+
+    String getProductName() {
+        return productName;
+    }
+
+    String getProductVersion() {
+        return productVersion;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Prefix of the output lines of the job, e.g. product:1.0
+     */
+    String tag() {
+        return productName + ":" + productVersion;
+    }
+}
@@ -0,0 +1,260 @@
+package io.alpaca;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Options for {@link Alpaca#scanManifestEntry(String, String, java.nio.file.Path, ScanOptions)}.
+ */
+public class ScanOptions {
+
+    /**
+     * Nested archives up to this size are kept in memory, bigger ones are spilled to a temp file.
+     */
+    public static final long DEFAULT_SPILL_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * Directories and files skipped by default, see {@link #getExcludes()}: .git in any case, e.g. .GIT on a case-insensitive file system.
+     */
+    public static final List<String> DEFAULT_EXCLUDES = List.of(".[gG][iI][tT]");
+
+    private boolean inMemory = false;
+
+    private long spillThreshold = DEFAULT_SPILL_THRESHOLD;
+
+    private String tmpDir = System.getProperty("java.io.tmpdir") + File.separator + "alpaca" + File.separator + ProcessHandle.current().pid();
+
+    private ScanCache cache;
+
+    private ScanSnapshot snapshot;
+
+    private ClassIndex classIndex;
+
+    private ScanStats stats;
+
+    private int ioParallelism = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private int cpuParallelism = Runtime.getRuntime().availableProcessors();
+
+    private int maxOpenArchives = 256;
+
+    private int readAhead = 16;
+
+    private boolean virtualThreads = false;
+
+    private ScanScheduler scheduler;
+
+    private List<String> includes = Collections.emptyList();
+
+    private List<String> excludes = DEFAULT_EXCLUDES;
+
+    private long minFileSize = 0;
+
+    private long maxFileSize = Long.MAX_VALUE;
+
+    public ScanOptions() {
+    }
+
+    /**
+     * Scan nested archives straight from their parent's bytes instead of extracting them to {@link #getTmpDir()}.
+     */
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    public ScanOptions setInMemory(boolean inMemory) {
+        this.inMemory = inMemory;
+        return this;
+    }
+
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    public ScanOptions setSpillThreshold(long spillThreshold) {
+        this.spillThreshold = spillThreshold;
+        return this;
+    }
+
+    /**
+     * Cache of scan results shared by scans, or null to scan every archive.
+     */
+    public ScanCache getCache() {
+        return cache;
+    }
+
+    public ScanOptions setCache(ScanCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Snapshot of the previous scan, to open only the files added or changed since then, or null to scan all files.
+     */
+    public ScanSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public ScanOptions setSnapshot(ScanSnapshot snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    /**
+     * Index to record the classes of every scanned Java archive in, or null to skip them.
+     * Archives are then always opened, the cache and the snapshot are not used.
+     */
+    public ClassIndex getClassIndex() {
+        return classIndex;
+    }
+
+    public ScanOptions setClassIndex(ClassIndex classIndex) {
+        this.classIndex = classIndex;
+        return this;
+    }
+
+    /**
+     * Counters and timers to record the scan in, or null to not measure it.
+     */
+    public ScanStats getStats() {
+        return stats;
+    }
+
+    public ScanOptions setStats(ScanStats stats) {
+        this.stats = stats;
+        return this;
+    }
+
+    /**
+     * Number of threads for tasks which read files
+     */
+    public int getIoParallelism() {
+        return ioParallelism;
+    }
+
+    public ScanOptions setIoParallelism(int ioParallelism) {
+        this.ioParallelism = ioParallelism;
+        return this;
+    }
+
+    /**
+     * Number of threads for tasks which parse archives in memory
+     */
+    public int getCpuParallelism() {
+        return cpuParallelism;
+    }
+
+    public ScanOptions setCpuParallelism(int cpuParallelism) {
+        this.cpuParallelism = cpuParallelism;
+        return this;
+    }
+
+    /**
+     * Maximum number of archive files open at once
+     */
+    public int getMaxOpenArchives() {
+        return maxOpenArchives;
+    }
+
+    public ScanOptions setMaxOpenArchives(int maxOpenArchives) {
+        this.maxOpenArchives = maxOpenArchives;
+        return this;
+    }
+
+    /**
+     * Maximum number of nested archives read from an archive and queued or being scanned. Beyond that the reader scans the
+     * next ones itself, so reading a tar.gz file overlaps with scanning the archives in it but never runs far ahead of it.
+     */
+    public int getReadAhead() {
+        return readAhead;
+    }
+
+    public ScanOptions setReadAhead(int readAhead) {
+        this.readAhead = readAhead;
+        return this;
+    }
+
+    /**
+     * Run the tasks which read files on virtual threads, JDK 21+ only
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public ScanOptions setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Scheduler shared by scans, or null to create one for every scan.
+     */
+    public ScanScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public ScanOptions setScheduler(ScanScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    /**
+     * Globs of the files to scan in a directory, all files if empty.
+     * A glob without a slash matches the file name, e.g. *.jar, other globs match the path relative to the directory.
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    public ScanOptions setIncludes(List<String> includes) {
+        this.includes = includes;
+        return this;
+    }
+
+    /**
+     * Globs of the files and directories to skip in a directory, matched like {@link #getIncludes()}.
+     * The directories are not even listed, e.g. node_modules.
+     */
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public ScanOptions setExcludes(List<String> excludes) {
+        this.excludes = excludes;
+        return this;
+    }
+
+    /**
+     * Files in a directory smaller than this are skipped
+     */
+    public long getMinFileSize() {
+        return minFileSize;
+    }
+
+    public ScanOptions setMinFileSize(long minFileSize) {
+        this.minFileSize = minFileSize;
+        return this;
+    }
+
+    /**
+     * Files in a directory bigger than this are skipped
+     */
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public ScanOptions setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+        return this;
+    }
+
+    public String getTmpDir() {
+        return tmpDir;
+    }
+
+    public ScanOptions setTmpDir(String tmpDir) {
+        this.tmpDir = tmpDir;
+        return this;
+    }
+}
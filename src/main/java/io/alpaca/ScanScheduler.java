@@ -0,0 +1,128 @@
+package io.alpaca;
+
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools of a scan, in place of the common fork join pool.
+ * <p/>
+ * Tasks which read files run on the I/O pool, tasks which only parse archives already read into memory run on the CPU pool.
+ * The number of archive files open at once is capped across both pools, see {@link #withOpenArchive(ArchiveTask)}.
+ * A scheduler can be shared by many scans, see {@link ScanOptions#setScheduler(ScanScheduler)}.
+ */
+public final class ScanScheduler implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ScanScheduler.class);
+
+    private final ExecutorService io;
+
+    private final ExecutorService cpu;
+
+    private final Semaphore openArchives;
+
+    // True on a thread running an archive task, whose own archive tasks then run without another permit
+    private final ThreadLocal<Boolean> openingArchive = ThreadLocal.withInitial(() -> false);
+
+    private ScanScheduler(final ExecutorService io, final ExecutorService cpu, final int maxOpenArchives) {
+        this.io = io;
+        this.cpu = cpu;
+        this.openArchives = new Semaphore(maxOpenArchives, true);
+    }
+
+    public static ScanScheduler create(final ScanOptions options) {
+        ExecutorService io = null;
+        if (options.isVirtualThreads()) {
+            io = newVirtualThreadPerTaskExecutor();
+        }
+        if (io == null) {
+            io = newFixedThreadPool("alpaca-io-", options.getIoParallelism());
+        }
+        final ExecutorService cpu = newFixedThreadPool("alpaca-cpu-", options.getCpuParallelism());
+        return new ScanScheduler(io, cpu, options.getMaxOpenArchives());
+    }
+
+    /**
+     * Pool for tasks which read files
+     */
+    ExecutorService io() {
+        return io;
+    }
+
+    /**
+     * Pool for tasks which parse archives in memory
+     */
+    ExecutorService cpu() {
+        return cpu;
+    }
+
+    /**
+     * Run a task which opens an archive file, waiting while too many archive files are open.
+     * <p/>
+     * The task must not wait for other scan tasks, or the scan may deadlock. It may run other archive tasks itself, e.g. a tar
+     * reader which scans the archives it reads when the pools are behind: they share its permit.
+     */
+    <T> T withOpenArchive(final ArchiveTask<T> task) throws Exception {
+        if (openingArchive.get()) {
+            return task.run();
+        }
+        openArchives.acquire();
+        openingArchive.set(true);
+        try {
+            return task.run();
+        } finally {
+            openingArchive.set(false);
+            openArchives.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        io.shutdown();
+        cpu.shutdown();
+        try {
+            io.awaitTermination(1, TimeUnit.MINUTES);
+            cpu.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    interface ArchiveTask<T> {
+        T run() throws Exception;
+    }
+
+    private static ExecutorService newFixedThreadPool(final String namePrefix, final int threads) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() on JDK 21+, null on older JDKs
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (Runtime.version().feature() < 21) {
+            LOG.warnf("Virtual threads need JDK 21+, running on JDK %s with platform threads", Runtime.version());
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            LOG.warnf(e, "Failed to create a virtual thread executor, using platform threads");
+            return null;
+        }
+    }
+}
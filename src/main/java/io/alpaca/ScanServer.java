@@ -0,0 +1,165 @@
+package io.alpaca;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.alpaca.models.ManifestEntry;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running scan server on the JDK HTTP server, so that scanning many jars does not start a JVM for each of them.
+ * <p/>
+ * All requests share the thread pools and the cache of the server options, so a warm server answers in milliseconds.
+ * The server only listens on the loopback address.
+ * <p/>
+ * GET or POST /scan?path=/tmp/guice-4.0.jar&productName=product&productVersion=1.0 returns the manifest entries of the
+ * path as a JSON array, in {@link ManifestEntry#ORDER}, in the format of {@link NdjsonWriter}.
+ */
+public final class ScanServer implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ScanServer.class);
+
+    static final String SCAN_PATH = "/scan";
+
+    private final HttpServer server;
+
+    private final ExecutorService handlers;
+
+    private final ScanScheduler scheduler;
+
+    private final ScanOptions options;
+
+    private ScanServer(final HttpServer server, final ExecutorService handlers, final ScanScheduler scheduler, final ScanOptions options) {
+        this.server = server;
+        this.handlers = handlers;
+        this.scheduler = scheduler;
+        this.options = options;
+    }
+
+    /**
+     * Start a server on the loopback address
+     *
+     * @param port    the port, 0 for any free port, see {@link #getPort()}
+     * @param options the options of every scan, a scheduler is created if they have none
+     */
+    public static ScanServer start(final int port, final ScanOptions options) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // Request threads only wait for their scan, which runs on the scheduler pools
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService handlers = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "alpaca-http-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ScanScheduler scheduler = options.getScheduler() == null ? ScanScheduler.create(options) : null;
+        if (scheduler != null) {
+            options.setScheduler(scheduler);
+        }
+        final ScanServer scanServer = new ScanServer(server, handlers, scheduler, options);
+        server.createContext(SCAN_PATH, scanServer::scan);
+        server.setExecutor(handlers);
+        server.start();
+        return scanServer;
+    }
+
+    /**
+     * The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void scan(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            final Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+            final String path = parameters.get("path");
+            if (path == null || path.isEmpty()) {
+                sendError(exchange, 400, "Missing path parameter");
+                return;
+            }
+            final Path jarFilePath = Paths.get(path);
+            if (!Files.exists(jarFilePath)) {
+                sendError(exchange, 404, "No such file or directory: " + path);
+                return;
+            }
+
+            final Set<ManifestEntry> manifestEntries;
+            try {
+                manifestEntries = Alpaca.scanManifestEntry(parameters.getOrDefault("productName", ""),
+                        parameters.getOrDefault("productVersion", ""), jarFilePath, options);
+            } catch (Exception e) {
+                LOG.errorf(e, "Exception occurred while scanning %s\n", path);
+                sendError(exchange, 500, "Failed to scan " + path + ": " + e);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)))) {
+                json.beginArray();
+                for (ManifestEntry manifestEntry : manifestEntries) {
+                    NdjsonWriter.writeManifestEntry(json, manifestEntry);
+                }
+                json.endArray().newLine();
+            }
+        }
+    }
+
+    private static void sendError(final HttpExchange exchange, final int status, final String message) throws IOException {
+        final byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Decode the query string, e.g. path=%2Ftmp%2Fguice-4.0.jar&productName=product
+     */
+    static Map<String, String> parameters(final String query) {
+        final Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            final int equals = parameter.indexOf('=');
+            final String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            final String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Stop accepting requests, let the running ones finish, then shut the scheduler down if the server created it
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        handlers.shutdown();
+        if (scheduler != null) {
+            scheduler.close();
+            options.setScheduler(null);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The files of the previous scan of a directory with their size, modification time and manifest entries, for an incremental rescan.
+ * <p/>
+ * A file whose size and modification time did not change is not opened again, its manifest entries are taken from the snapshot.
+ * The snapshot only applies to a scan of the same path for the same product with the same {@link ScanCache#VERSION}.
+ */
+public final class ScanSnapshot {
+
+    private static final Logger LOG = Logger.getLogger(ScanSnapshot.class);
+
+    private final Path file;
+
+    // path -> file of the previous scan
+    private final Map<String, FileRecord> previous;
+
+    private final Header previousHeader;
+
+    // path -> file of this scan
+    private final Map<String, FileRecord> current = new ConcurrentHashMap<>();
+
+    private volatile Header header;
+
+    private ScanSnapshot(final Path file, final Header previousHeader, final Map<String, FileRecord> previous) {
+        this.file = file;
+        this.previousHeader = previousHeader;
+        this.previous = previous;
+    }
+
+    /**
+     * Load the snapshot of the previous scan from the file, or start an empty one if there is none.
+     */
+    public static ScanSnapshot load(final Path file) {
+        if (Files.isRegularFile(file)) {
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(file));
+                 ObjectInputStream objectInput = new ObjectInputStream(input)) {
+                final Header header = (Header) objectInput.readObject();
+                @SuppressWarnings("unchecked")
+                final Map<String, FileRecord> files = (Map<String, FileRecord>) objectInput.readObject();
+                return new ScanSnapshot(file, header, files);
+            } catch (Exception e) {
+                // e.g. a model class changed
+                LOG.warnf(e, "Ignoring unreadable scan snapshot %s", file);
+            }
+        }
+        return new ScanSnapshot(file, null, Collections.emptyMap());
+    }
+
+    /**
+     * Start a scan of the path. The previous scan is ignored if it was of another path or product, or by another detection logic.
+     */
+    void begin(final String path, final String productName, final String productVersion) {
+        header = new Header(ScanCache.VERSION, path, productName, productVersion);
+        if (previousHeader != null && !header.equals(previousHeader)) {
+            LOG.infof("Ignoring scan snapshot %s of %s", file, previousHeader.path);
+        }
+    }
+
+    private boolean isPreviousValid() {
+        return previousHeader != null && previousHeader.equals(header);
+    }
+
+    /**
+     * The manifest entries of the file from the previous scan, or null if the file is new or changed since then
+     */
+    Set<ManifestEntry> get(final String path, final long size, final long lastModified) {
+        if (!isPreviousValid()) {
+            return null;
+        }
+        final FileRecord record = previous.get(path);
+        if (record == null || record.size != size || record.lastModified != lastModified) {
+            return null;
+        }
+        current.put(path, record);
+        return new HashSet<>(record.manifests);
+    }
+
+    /**
+     * Record the manifest entries of a file scanned in this scan
+     */
+    void put(final String path, final long size, final long lastModified, final Collection<ManifestEntry> manifests) {
+        current.put(path, new FileRecord(size, lastModified, new ArrayList<>(manifests)));
+    }
+
+    /**
+     * Manifest entries of the previous scan, empty if it does not apply to this scan
+     */
+    public Set<ManifestEntry> getPreviousManifests() {
+        return isPreviousValid() ? manifests(previous) : Collections.emptySet();
+    }
+
+    /**
+     * Manifest entries of this scan, including those of unchanged files
+     */
+    public Set<ManifestEntry> getManifests() {
+        return manifests(current);
+    }
+
+    /**
+     * Replace the snapshot file with this scan. Files not found by this scan are dropped.
+     */
+    public void save() throws IOException {
+        final Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path tmpFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tmpFile));
+                 ObjectOutputStream objectOutput = new ObjectOutputStream(output)) {
+                objectOutput.writeObject(header);
+                objectOutput.writeObject(new HashMap<>(current));
+            }
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static Set<ManifestEntry> manifests(final Map<String, FileRecord> files) {
+        final Set<ManifestEntry> manifests = new HashSet<>();
+        for (FileRecord record : files.values()) {
+            manifests.addAll(record.manifests);
+        }
+        return manifests;
+    }
+
+    private static final class Header implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int version;
+
+        private final String path;
+
+        private final String productName;
+
+        private final String productVersion;
+
+        private Header(final int version, final String path, final String productName, final String productVersion) {
+            this.version = version;
+            this.path = path;
+            this.productName = productName;
+            this.productVersion = productVersion;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Header that = (Header) o;
+            return version == that.version && Objects.equals(path, that.path) && Objects.equals(productName, that.productName)
+                    && Objects.equals(productVersion, that.productVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, path, productName, productVersion);
+        }
+    }
+
+    private static final class FileRecord implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final ArrayList<ManifestEntry> manifests;
+
+        private FileRecord(final long size, final long lastModified, final ArrayList<ManifestEntry> manifests) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.manifests = manifests;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package io.alpaca;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timers of a scan, to see where its time goes, see {@link ScanOptions#setStats(ScanStats)}.
+ * <p/>
+ * All values are {@link LongAdder}s, so the scan threads record them without contending with each other. Phase times are
+ * summed over all threads and include waiting for I/O, so they may add up to more than the scan took.
+ */
+public final class ScanStats {
+
+    /**
+     * Records nothing, for scans without statistics
+     */
+    static final ScanStats NONE = new ScanStats(false);
+
+    public enum Phase {
+
+        /**
+         * The whole scan, from start to the last archive
+         */
+        SCAN,
+
+        /**
+         * Detecting the type of files and nested archives from their first bytes
+         */
+        PROBE,
+
+        /**
+         * Decompressing archives to the temp dir, or reading nested archives into memory
+         */
+        EXTRACT,
+
+        /**
+         * Opening zip and Java archives, which reads their central directory, and classifying their entries
+         */
+        CENTRAL_DIRECTORY,
+
+        /**
+         * Parsing the META-INF/maven/../pom.xml files of Java archives
+         */
+        POM,
+
+        /**
+         * Parsing the META-INF/MANIFEST.MF files of Java archives
+         */
+        MANIFEST;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final boolean enabled;
+
+    private final LongAdder[] counts = new LongAdder[Phase.values().length];
+
+    private final LongAdder[] nanos = new LongAdder[Phase.values().length];
+
+    private final LongAdder extractedBytesIn = new LongAdder();
+
+    private final LongAdder extractedBytesOut = new LongAdder();
+
+    private final LongAdder extractedEntries = new LongAdder();
+
+    // nesting depth, 0 for the scanned files -> archives scanned at that depth
+    private final Map<Integer, LongAdder> archivesByDepth = new ConcurrentHashMap<>();
+
+    public ScanStats() {
+        this(true);
+    }
+
+    private ScanStats(final boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+            nanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * False for {@link #NONE}, to skip measuring what costs more than reading the clock
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Count a run of the phase started at the given {@link System#nanoTime()}
+     */
+    void record(final Phase phase, final long startNanos) {
+        if (enabled) {
+            counts[phase.ordinal()].increment();
+            nanos[phase.ordinal()].add(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Add the time since the given {@link System#nanoTime()} to the phase without counting a run, for a phase done in two steps
+     */
+    void addTime(final Phase phase, final long startNanos) {
+        if (enabled) {
+            nanos[phase.ordinal()].add(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Count entries decompressed from an archive
+     *
+     * @param bytesIn  the compressed size of an entry read into memory, or the size of an archive file decompressed to disk
+     * @param bytesOut the uncompressed size of the entries
+     */
+    void extracted(final long entries, final long bytesIn, final long bytesOut) {
+        if (enabled) {
+            extractedEntries.add(entries);
+            extractedBytesIn.add(bytesIn);
+            extractedBytesOut.add(bytesOut);
+        }
+    }
+
+    /**
+     * Count an archive scanned at the nesting depth, 0 for a scanned file, 1 for an archive in it, ...
+     */
+    void archive(final int depth) {
+        if (enabled) {
+            archivesByDepth.computeIfAbsent(depth, d -> new LongAdder()).increment();
+        }
+    }
+
+    public long getCount(final Phase phase) {
+        return counts[phase.ordinal()].sum();
+    }
+
+    public long getNanos(final Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    public long getExtractedBytesIn() {
+        return extractedBytesIn.sum();
+    }
+
+    public long getExtractedBytesOut() {
+        return extractedBytesOut.sum();
+    }
+
+    public long getExtractedEntries() {
+        return extractedEntries.sum();
+    }
+
+    /**
+     * Archives scanned by nesting depth, from 0 for the scanned files
+     */
+    public Map<Integer, Long> getArchivesByDepth() {
+        final Map<Integer, Long> archives = new TreeMap<>();
+        archivesByDepth.forEach((depth, count) -> archives.put(depth, count.sum()));
+        return archives;
+    }
+
+    /**
+     * Write a summary for humans, one line per phase then the extraction and nesting counters
+     */
+    public void writeSummary(final Writer writer) throws IOException {
+        for (Phase phase : Phase.values()) {
+            final long count = getCount(phase);
+            final long phaseNanos = getNanos(phase);
+            writer.write(String.format(Locale.ROOT, "%-18s %10d %12.1f ms %12.1f us/op%n", phase.label(), count,
+                    phaseNanos / 1e6, count == 0 ? 0.0 : phaseNanos / 1e3 / count));
+        }
+        writer.write(String.format(Locale.ROOT, "%-18s %10d entries %d bytes in %d bytes out%n", "extracted",
+                getExtractedEntries(), getExtractedBytesIn(), getExtractedBytesOut()));
+        for (Map.Entry<Integer, Long> archives : getArchivesByDepth().entrySet()) {
+            writer.write(String.format(Locale.ROOT, "%-18s %10d%n", "archives depth " + archives.getKey(), archives.getValue()));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Write the statistics as one JSON object
+     * <p/>
+     * e.g. {"phases":{"scan":{"count":1,"nanos":1300000000},...},"extracted":{"entries":3,"bytesIn":10,"bytesOut":20},"archivesByDepth":{"0":1}}
+     */
+    public void writeJson(final Writer writer) throws IOException {
+        final JsonWriter json = new JsonWriter(writer);
+        json.beginObject().name("phases").beginObject();
+        for (Phase phase : Phase.values()) {
+            json.name(phase.label()).beginObject()
+                    .field("count", getCount(phase))
+                    .field("nanos", getNanos(phase))
+                    .endObject();
+        }
+        json.endObject().name("extracted").beginObject()
+                .field("entries", getExtractedEntries())
+                .field("bytesIn", getExtractedBytesIn())
+                .field("bytesOut", getExtractedBytesOut())
+                .endObject().name("archivesByDepth").beginObject();
+        for (Map.Entry<Integer, Long> archives : getArchivesByDepth().entrySet()) {
+            json.field(String.valueOf(archives.getKey()), archives.getValue());
+        }
+        json.endObject().endObject().newLine();
+        json.flush();
+    }
+
+    /**
+     * Write the statistics in the Prometheus text exposition format, e.g. for the textfile collector of the node exporter
+     */
+    public void writePrometheus(final Writer writer) throws IOException {
+        writer.write("# HELP alpaca_phase_total Runs of each phase of the scan\n# TYPE alpaca_phase_total counter\n");
+        for (Phase phase : Phase.values()) {
+            writer.write("alpaca_phase_total{phase=\"" + phase.label() + "\"} " + getCount(phase) + "\n");
+        }
+        writer.write("# HELP alpaca_phase_seconds_total Time spent in each phase of the scan, summed over threads\n"
+                + "# TYPE alpaca_phase_seconds_total counter\n");
+        for (Phase phase : Phase.values()) {
+            writer.write("alpaca_phase_seconds_total{phase=\"" + phase.label() + "\"} " + getNanos(phase) / (double) TimeUnit.SECONDS.toNanos(1) + "\n");
+        }
+        writer.write("# HELP alpaca_extracted_entries_total Entries decompressed from archives\n# TYPE alpaca_extracted_entries_total counter\n"
+                + "alpaca_extracted_entries_total " + getExtractedEntries() + "\n");
+        writer.write("# HELP alpaca_extracted_bytes_total Bytes of the entries decompressed from archives, compressed in and uncompressed out\n"
+                + "# TYPE alpaca_extracted_bytes_total counter\n"
+                + "alpaca_extracted_bytes_total{direction=\"in\"} " + getExtractedBytesIn() + "\n"
+                + "alpaca_extracted_bytes_total{direction=\"out\"} " + getExtractedBytesOut() + "\n");
+        writer.write("# HELP alpaca_archives_total Archives scanned by nesting depth\n# TYPE alpaca_archives_total counter\n");
+        for (Map.Entry<Integer, Long> archives : getArchivesByDepth().entrySet()) {
+            writer.write("alpaca_archives_total{depth=\"" + archives.getKey() + "\"} " + archives.getValue() + "\n");
+        }
+        writer.flush();
+    }
+}
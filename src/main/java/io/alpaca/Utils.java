@@ -17,6 +17,9 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.ZipException;
 
 public class Utils {
 
@@ -39,69 +42,26 @@ public class Utils {
     public static final String XML = ".xml";
     public static final String WIN6 = ".win6";
 
-    public static final String JAR_ARCHIVE = "application/x-java-archive";
-    public static final String RAR_ARCHIVE = "application/vnd.rar"; // rar
-    public static final String ZIP_ARCHIVE = "application/zip";
-    public static final String GZ_ARCHIVE = "application/gzip"; // gz
-    public static final String GZIP_ARCHIVE = "application/gzip"; // tar.gz tgz
-    public static final String TAR_ARCHIVE = "application/x-tar"; // tar
-
-    private static final Set<String> javaArchiveFormats = Sets.newHashSet();
-    private static final Set<String> archiveFormats = Sets.newHashSet();
-
-    static {
-        javaArchiveFormats.add(JAR_ARCHIVE);
-        javaArchiveFormats.add("jar");
-        javaArchiveFormats.add("war");
-        javaArchiveFormats.add("ear");
-        javaArchiveFormats.add("rar");
-        javaArchiveFormats.add("adm");
-        javaArchiveFormats.add("hpi");
-        javaArchiveFormats.add("application/java-archive");
-        javaArchiveFormats.add("application/x-java-jnlp-file");
-        javaArchiveFormats.add("application/bz2");
-        javaArchiveFormats.add("application/x-gzip");
-        javaArchiveFormats.add("text/javascript");
-        javaArchiveFormats.add("application/octet-stream");
-        javaArchiveFormats.add("text/x-ruby-script");
-        javaArchiveFormats.add("application/postscript");
-        javaArchiveFormats.add("text/x-python-script");
-
-        archiveFormats.add(RAR_ARCHIVE);
-        archiveFormats.add(ZIP_ARCHIVE);
-        archiveFormats.add(GZ_ARCHIVE);
-        archiveFormats.add(GZIP_ARCHIVE);
-        archiveFormats.add(TAR_ARCHIVE);
-    }
+    private static final Predicate<String> ALL_ENTRIES = entryName -> true;
 
-    public static boolean isJavaArchive(Path path) {
-        try {
-            var contentType = Files.probeContentType(path);
-            if (contentType == null) {
-                final var fileExtension = com.google.common.io.Files.getFileExtension(path.toString());
-                contentType = fileExtension;
-            }
-            if (javaArchiveFormats.contains(contentType)) {
-                return true;
-            }
-        } catch (IOException e) {
-        }
-        return false;
+    private static final Consumer<String> NO_LISTENER = file -> {
+    };
+
+    /**
+     * Check an archive entry name, e.g. of a nested archive, for a container archive like zip or tar.gz.
+     */
+    public static boolean isArchiveEntry(final String entryName) {
+        final String name = entryName.toLowerCase();
+        return name.endsWith(ZIP) || name.endsWith(TAR) || name.endsWith(TAR_GZ) || name.endsWith(TGZ);
     }
 
-    public static boolean isArchive(Path path) {
-        try {
-            var contentType = Files.probeContentType(path);
-            if (contentType == null) {
-                final var fileExtension = com.google.common.io.Files.getFileExtension(path.toString());
-                contentType = fileExtension;
-            }
-            if (archiveFormats.contains(contentType)) {
-                return true;
-            }
-        } catch (IOException e) {
-        }
-        return false;
+    /**
+     * Check an archive entry name, e.g. of a nested archive, for a Java archive like jar or war.
+     */
+    public static boolean isJavaArchiveEntry(final String entryName) {
+        final String name = entryName.toLowerCase();
+        return name.endsWith(JAR) || name.endsWith(WAR) || name.endsWith(EAR) || name.endsWith(RAR)
+                || name.endsWith(ADM) || name.endsWith(HPI);
     }
 
     public static Set<String> decompressArchive(final Path zipFile, final String targetUnzipDir) {
@@ -117,11 +77,101 @@ public class Utils {
         return unzippedFileEntrySet;
     }
 
+    /**
+     * Decompress the archive by its type, detected from its first bytes, instead of its name
+     */
+    public static Set<String> decompressArchive(final Path zipFile, final String targetUnzipDir, final ArchiveType type) {
+        return decompressArchive(zipFile, targetUnzipDir, type, ALL_ENTRIES);
+    }
+
+    /**
+     * Decompress only the entries whose names match the filter, the others are neither written nor, in a zip file, read
+     */
+    public static Set<String> decompressArchive(final Path zipFile, final String targetUnzipDir, final ArchiveType type,
+                                                final Predicate<String> filter) {
+        return decompressArchive(zipFile, targetUnzipDir, type, filter, NO_LISTENER);
+    }
+
+    /**
+     * Decompress only the entries whose names match the filter, passing every file to the listener as soon as it is written
+     */
+    public static Set<String> decompressArchive(final Path zipFile, final String targetUnzipDir, final ArchiveType type,
+                                                final Predicate<String> filter, final Consumer<String> listener) {
+        switch (type) {
+            case TAR:
+                return decompressTarFile(targetUnzipDir, zipFile, filter, listener);
+            case GZIP:
+                return decompressTarGzFile(targetUnzipDir, zipFile, filter, listener);
+            default:
+                return unzip(targetUnzipDir, zipFile, filter, listener);
+        }
+    }
+
     public static Set<String> unzip(final String targetUnZipDir, final Path zipFile) {
+        return unzip(targetUnZipDir, zipFile, ALL_ENTRIES, NO_LISTENER);
+    }
+
+    public static Set<String> unzip(final String targetUnZipDir, final Path zipFile, final Predicate<String> filter,
+                                    final Consumer<String> listener) {
         LOG.infof("Unzipping %s to %s", zipFile, targetUnZipDir);
 
         final Set<String> unzippedFileEntrySet = Sets.newConcurrentHashSet();
 
+        // Read the central directory, then only the entries
+        final MappedZipFile mappedZipFile;
+        try {
+            mappedZipFile = MappedZipFile.open(zipFile);
+        } catch (ZipException e) {
+            LOG.debugf(e, "No central directory in %s, unzipping its local file headers", zipFile);
+            return unzipStream(targetUnZipDir, zipFile, filter, listener);
+        } catch (IOException e) {
+            LOG.errorf(e, "Exception occurred while unzip %s\n", zipFile);
+            return unzippedFileEntrySet;
+        }
+        try (mappedZipFile) {
+            final String zipFileName = zipFile.toFile().getName();
+            for (MappedZipFile.Entry entry : mappedZipFile.getEntries()) {
+                if (!filter.test(entry.getName())) {
+                    continue;
+                }
+                if (!entry.canReadData()) {
+                    LOG.debugf("Skipping %s in %s, encrypted or compressed with an unsupported method", entry.getName(), zipFile);
+                    continue;
+                }
+
+                Path unzippedFileEntry = fileName(targetUnZipDir, zipFileName, entry.getName());
+                File f = unzippedFileEntry.toFile();
+                if (entry.isDirectory()) {
+                    f.mkdirs();
+                } else {
+                    File parent = f.getParentFile();
+                    parent.mkdirs();
+                    try (InputStream i = mappedZipFile.getInputStream(entry);
+                         OutputStream o = Files.newOutputStream(f.toPath())) {
+                        IOUtils.copy(i, o);
+                    }
+                }
+
+                // Add only file, not directory
+                if (Files.isRegularFile(unzippedFileEntry)) {
+                    unzippedFileEntrySet.add(unzippedFileEntry.toString());
+                    listener.accept(unzippedFileEntry.toString());
+                }
+            }
+        } catch (Exception e) {
+            LOG.errorf(e, "Exception occurred while unzip %s\n", zipFile);
+        }
+        LOG.infof("Unzipped %s entries from %s to %s", unzippedFileEntrySet.size(), zipFile, targetUnZipDir);
+        return unzippedFileEntrySet;
+    }
+
+    /**
+     * Unzip the entries in the order of their local file headers, for zip files without a readable central directory
+     */
+    private static Set<String> unzipStream(final String targetUnZipDir, final Path zipFile, final Predicate<String> filter,
+                                           final Consumer<String> listener) {
+        final Set<String> unzippedFileEntrySet = Sets.newConcurrentHashSet();
+
         // Unzip
         try (InputStream fi = Files.newInputStream(zipFile);
              InputStream bi = new BufferedInputStream(fi);
@@ -129,7 +179,7 @@ public class Utils {
             final String zipFileName = zipFile.toFile().getName();
             ArchiveEntry entry;
             while ((entry = i.getNextEntry()) != null) {
-                if (!i.canReadEntryData(entry)) {
+                if (!filter.test(entry.getName()) || !i.canReadEntryData(entry)) {
                     // log something?
                     continue;
                 }
@@ -155,6 +205,7 @@ public class Utils {
                 // Add only file, not directory
                 if (Files.isRegularFile(unzippedFileEntry)) {
                     unzippedFileEntrySet.add(unzippedFileEntry.toString());
+                    listener.accept(unzippedFileEntry.toString());
                 }
             }
         } catch (Exception e) {
@@ -165,6 +216,11 @@ public class Utils {
     }
 
     public static Set<String> decompressTarGzFile(final String targetUnZipDir, final Path zipFile) {
+        return decompressTarGzFile(targetUnZipDir, zipFile, ALL_ENTRIES, NO_LISTENER);
+    }
+
+    public static Set<String> decompressTarGzFile(final String targetUnZipDir, final Path zipFile, final Predicate<String> filter,
+                                                  final Consumer<String> listener) {
         LOG.infof("Decompressing tar.gz file %s to %s", zipFile, targetUnZipDir);
 
         final Set<String> unzippedFileEntrySet = Sets.newConcurrentHashSet();
@@ -177,7 +233,7 @@ public class Utils {
             final String zipFileName = zipFile.toFile().getName();
             ArchiveEntry entry;
             while ((entry = i.getNextEntry()) != null) {
-                if (!i.canReadEntryData(entry)) {
+                if (!filter.test(entry.getName()) || !i.canReadEntryData(entry)) {
                     // log something?
                     continue;
                 }
@@ -201,6 +257,7 @@ public class Utils {
                 // Add only file, not directory
                 if (Files.isRegularFile(unzippedFileEntry)) {
                     unzippedFileEntrySet.add(unzippedFileEntry.toString());
+                    listener.accept(unzippedFileEntry.toString());
                 }
             }
         } catch (Exception e) {
@@ -211,6 +268,11 @@ public class Utils {
     }
 
     public static Set<String> decompressTarFile(final String targetUnZipDir, final Path zipFile) {
+        return decompressTarFile(targetUnZipDir, zipFile, ALL_ENTRIES, NO_LISTENER);
+    }
+
+    public static Set<String> decompressTarFile(final String targetUnZipDir, final Path zipFile, final Predicate<String> filter,
+                                                final Consumer<String> listener) {
         LOG.infof("Decompress tar file %s to %s", zipFile, targetUnZipDir);
 
         final Set<String> unzippedFileEntrySet = Sets.newConcurrentHashSet();
@@ -222,7 +284,7 @@ public class Utils {
             final String zipFileName = zipFile.toFile().getName();
             ArchiveEntry entry;
             while ((entry = i.getNextEntry()) != null) {
-                if (!i.canReadEntryData(entry)) {
+                if (!filter.test(entry.getName()) || !i.canReadEntryData(entry)) {
                     // log something?
                     continue;
                 }
@@ -246,6 +308,7 @@ public class Utils {
                 // Add only file, not directory
                 if (Files.isRegularFile(unzippedFileEntry)) {
                     unzippedFileEntrySet.add(unzippedFileEntry.toString());
+                    listener.accept(unzippedFileEntry.toString());
                 }
             }
         } catch (Exception e) {
@@ -256,6 +319,10 @@ public class Utils {
     }
 
     public static Path fileName(final String targetDir, final String zipFileName, final ArchiveEntry entry) {
-        return Path.of(targetDir + File.separator + zipFileName + File.separator + entry.getName());
+        return fileName(targetDir, zipFileName, entry.getName());
+    }
+
+    public static Path fileName(final String targetDir, final String zipFileName, final String entryName) {
+        return Path.of(targetDir + File.separator + zipFileName + File.separator + entryName);
     }
 }
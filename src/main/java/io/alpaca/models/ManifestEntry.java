@@ -2,15 +2,61 @@ package io.alpaca.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Objects;
 
+/**
+ * A Java archive found by a scan.
+ * <p/>
+ * A product scan keeps hundreds of thousands of entries, so they are stored compactly: the strings which repeat across
+ * entries (product, coordinates, file names, bundles) are interned, the path is kept as the interned node of its directory
+ * and its file name, and the bundles as an array of interned strings shared by the copies of the entry. The hash code is
+ * cached. The serialized form is the same as with plain string fields.
+ */
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class ManifestEntry implements Serializable {
 
     private static final long serialVersionUID = 3167639000206178577L;
 
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("productName", String.class),
+            new ObjectStreamField("productVersion", String.class),
+            new ObjectStreamField("groupId", String.class),
+            new ObjectStreamField("artifactId", String.class),
+            new ObjectStreamField("version", String.class),
+            new ObjectStreamField("jarFileName", String.class),
+            new ObjectStreamField("path", String.class),
+            new ObjectStreamField("bundles", String.class),
+            new ObjectStreamField("fingerprint", String.class)
+    };
+
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+    private static final String BUNDLE_SEPARATOR = ",";
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    /**
+     * Order of scan results: by path, then coordinates, file name, bundles and product. Consistent with {@link #equals(Object)}.
+     */
+    public static final Comparator<ManifestEntry> ORDER = ((Comparator<ManifestEntry>) ManifestEntry::comparePaths)
+            .thenComparing(ManifestEntry::getGroupId, NULLS_FIRST)
+            .thenComparing(ManifestEntry::getArtifactId, NULLS_FIRST)
+            .thenComparing(ManifestEntry::getVersion, NULLS_FIRST)
+            .thenComparing(ManifestEntry::getJarFileName, NULLS_FIRST)
+            .thenComparing(ManifestEntry::getBundles, NULLS_FIRST)
+            .thenComparing(ManifestEntry::getProductName, NULLS_FIRST)
+            .thenComparing(ManifestEntry::getProductVersion, NULLS_FIRST);
+
     private String productName;
 
     private String productVersion;
@@ -26,35 +72,49 @@ public class ManifestEntry implements Serializable {
 
     private String jarFileName;
 
-    private String path;
+    // the path is pathDirectory/pathName, or pathName without directory
+    private transient PathNode pathDirectory;
+
+    private transient String pathName;
+
+    private transient String[] bundles;
 
-    private String bundles;
+    private String fingerprint;
+
+    // 0 until computed
+    private transient int hash;
 
     public ManifestEntry() {
     }
 
     public ManifestEntry(String productName, String productVersion, String groupId, String artifactId, String version, String jarFileName, String pomName, String path, String bundles) {
-        this.productName = productName;
-        this.productVersion = productVersion;
-        this.groupId = groupId;
-        this.artifactId = artifactId;
-        this.version = version;
-        this.jarFileName = jarFileName;
-        this.pomName = pomName;
-        this.path = path;
-        this.bundles = bundles;
+        this.productName = intern(productName);
+        this.productVersion = intern(productVersion);
+        this.groupId = intern(groupId);
+        this.artifactId = intern(artifactId);
+        this.version = intern(version);
+        this.jarFileName = intern(jarFileName);
+        this.pomName = intern(pomName);
+        setPath(path);
+        setBundles(bundles);
     }
 
+    /**
+     * Copy the entry, sharing its strings, directory and bundles
+     */
     public ManifestEntry(ManifestEntry manifestEntry) {
-        this.productName = manifestEntry.getProductName();
-        this.productVersion = manifestEntry.getProductVersion();
-        this.groupId = manifestEntry.getGroupId();
-        this.artifactId = manifestEntry.getArtifactId();
-        this.version = manifestEntry.getVersion();
-        this.pomName = manifestEntry.getPomName();
-        this.jarFileName = manifestEntry.getJarFileName();
-        this.path = manifestEntry.getPath();
-        this.bundles = manifestEntry.getBundles();
+        this.productName = manifestEntry.productName;
+        this.productVersion = manifestEntry.productVersion;
+        this.groupId = manifestEntry.groupId;
+        this.artifactId = manifestEntry.artifactId;
+        this.version = manifestEntry.version;
+        this.pomName = manifestEntry.pomName;
+        this.jarFileName = manifestEntry.jarFileName;
+        this.pathDirectory = manifestEntry.pathDirectory;
+        this.pathName = manifestEntry.pathName;
+        this.bundles = manifestEntry.bundles;
+        this.fingerprint = manifestEntry.fingerprint;
+        this.hash = manifestEntry.hash;
     }
 
     public String getProductName() {
@@ -62,7 +122,8 @@ public class ManifestEntry implements Serializable {
     }
 
     public void setProductName(String productName) {
-        this.productName = productName;
+        this.productName = intern(productName);
+        this.hash = 0;
     }
 
     public String getProductVersion() {
@@ -70,7 +131,8 @@ public class ManifestEntry implements Serializable {
     }
 
     public void setProductVersion(String productVersion) {
-        this.productVersion = productVersion;
+        this.productVersion = intern(productVersion);
+        this.hash = 0;
     }
 
     public String getGroupId() {
@@ -78,7 +140,8 @@ public class ManifestEntry implements Serializable {
     }
 
     public void setGroupId(String groupId) {
-        this.groupId = groupId;
+        this.groupId = intern(groupId);
+        this.hash = 0;
     }
 
     public String getArtifactId() {
@@ -86,7 +149,8 @@ public class ManifestEntry implements Serializable {
     }
 
     public void setArtifactId(String artifactId) {
-        this.artifactId = artifactId;
+        this.artifactId = intern(artifactId);
+        this.hash = 0;
     }
 
     public String getVersion() {
@@ -94,7 +158,8 @@ public class ManifestEntry implements Serializable {
     }
 
     public void setVersion(String version) {
-        this.version = version;
+        this.version = intern(version);
+        this.hash = 0;
     }
 
     public String getPomName() {
@@ -102,7 +167,7 @@ public class ManifestEntry implements Serializable {
     }
 
     public void setPomName(String pomName) {
-        this.pomName = pomName;
+        this.pomName = intern(pomName);
     }
 
     public String getJarFileName() {
@@ -110,23 +175,56 @@ public class ManifestEntry implements Serializable {
     }
 
     public void setJarFileName(String jarFileName) {
-        this.jarFileName = jarFileName;
+        this.jarFileName = intern(jarFileName);
+        this.hash = 0;
     }
 
     public String getPath() {
-        return path;
+        return pathDirectory != null ? pathDirectory.resolve(pathName) : pathName;
     }
 
     public void setPath(String path) {
-        this.path = path;
+        this.hash = 0;
+        if (path == null) {
+            this.pathDirectory = null;
+            this.pathName = null;
+            return;
+        }
+        final int slash = path.lastIndexOf('/');
+        this.pathDirectory = slash >= 0 ? PathNode.of(path.substring(0, slash)) : null;
+        final String name = path.substring(slash + 1);
+        // The file name of the path is usually the jar file name
+        this.pathName = name.equals(jarFileName) ? jarFileName : name;
     }
 
+    /**
+     * The pom.xml paths with the versions of the jars bundled in an uber jar, separated by commas
+     */
     public String getBundles() {
-        return bundles;
+        return bundles != null ? String.join(BUNDLE_SEPARATOR, bundles) : null;
     }
 
     public void setBundles(String bundles) {
-        this.bundles = bundles;
+        this.hash = 0;
+        if (bundles == null) {
+            this.bundles = null;
+            return;
+        }
+        this.bundles = bundles.split(BUNDLE_SEPARATOR, -1);
+        for (int i = 0; i < this.bundles.length; i++) {
+            this.bundles[i] = intern(this.bundles[i]);
+        }
+    }
+
+    /**
+     * Hash of the names, CRC-32 and sizes of the archive entries, see io.alpaca.ArchiveFingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = intern(fingerprint);
     }
 
     public String toManifest() {
@@ -142,6 +240,7 @@ public class ManifestEntry implements Serializable {
         sb.append(productName).append(":").append(productVersion)
                 .append("/").append(pomName).append("/").append(version)
                 .append("/").append(jarFileName);
+        final String bundles = getBundles();
         if (bundles != null && !"".equals(bundles)) {
             sb.append("/").append(bundles);
         }
@@ -167,6 +266,7 @@ public class ManifestEntry implements Serializable {
 
     public String toDeptopiaManifestForUberJar() {
         final StringBuffer sb = new StringBuffer(toDeptopiaManifest());
+        final String bundles = getBundles();
         if (bundles != null && !"".equals(bundles)) {
             sb.append("/").append(bundles);
         }
@@ -178,7 +278,7 @@ public class ManifestEntry implements Serializable {
         final StringBuffer sb = new StringBuffer();
         sb.append(productName).append(":").append(productVersion)
                 .append("/").append(pomName).append("/").append(version)
-                .append("/").append(jarFileName).append("/").append(path);
+                .append("/").append(jarFileName).append("/").append(getPath());
         return sb.toString();
     }
 
@@ -187,11 +287,63 @@ public class ManifestEntry implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ManifestEntry that = (ManifestEntry) o;
-        return Objects.equals(productName, that.productName) && Objects.equals(productVersion, that.productVersion) && Objects.equals(groupId, that.groupId) && Objects.equals(artifactId, that.artifactId) && Objects.equals(version, that.version) && Objects.equals(jarFileName, that.jarFileName) && Objects.equals(path, that.path) && Objects.equals(bundles, that.bundles);
+        // directories are interned
+        return hashCode() == that.hashCode() && pathDirectory == that.pathDirectory && Objects.equals(pathName, that.pathName)
+                && Objects.equals(artifactId, that.artifactId) && Objects.equals(groupId, that.groupId) && Objects.equals(version, that.version)
+                && Objects.equals(jarFileName, that.jarFileName) && Objects.equals(productName, that.productName)
+                && Objects.equals(productVersion, that.productVersion) && Arrays.equals(bundles, that.bundles);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(productName, productVersion, groupId, artifactId, version, jarFileName, path, bundles);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(productName, productVersion, groupId, artifactId, version, jarFileName, pathDirectory, pathName, Arrays.hashCode(bundles));
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Compare the paths like strings, without building them unless one of them has no directory
+     */
+    private static int comparePaths(final ManifestEntry a, final ManifestEntry b) {
+        if (a.pathDirectory == b.pathDirectory) {
+            return NULLS_FIRST.compare(a.pathName, b.pathName);
+        } else if (a.pathDirectory != null && b.pathDirectory != null) {
+            return PathNode.compare(a.pathDirectory, a.pathName, b.pathDirectory, b.pathName);
+        }
+        return NULLS_FIRST.compare(a.getPath(), b.getPath());
+    }
+
+    private static String intern(final String value) {
+        return value != null ? STRINGS.intern(value) : null;
+    }
+
+    private void writeObject(final ObjectOutputStream output) throws IOException {
+        final ObjectOutputStream.PutField fields = output.putFields();
+        fields.put("productName", productName);
+        fields.put("productVersion", productVersion);
+        fields.put("groupId", groupId);
+        fields.put("artifactId", artifactId);
+        fields.put("version", version);
+        fields.put("jarFileName", jarFileName);
+        fields.put("path", getPath());
+        fields.put("bundles", getBundles());
+        fields.put("fingerprint", fingerprint);
+        output.writeFields();
+    }
+
+    private void readObject(final ObjectInputStream input) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = input.readFields();
+        productName = intern((String) fields.get("productName", null));
+        productVersion = intern((String) fields.get("productVersion", null));
+        groupId = intern((String) fields.get("groupId", null));
+        artifactId = intern((String) fields.get("artifactId", null));
+        version = intern((String) fields.get("version", null));
+        jarFileName = intern((String) fields.get("jarFileName", null));
+        setPath((String) fields.get("path", null));
+        setBundles((String) fields.get("bundles", null));
+        fingerprint = intern((String) fields.get("fingerprint", null));
     }
 }
\ No newline at end of file
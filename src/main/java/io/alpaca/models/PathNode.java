@@ -0,0 +1,139 @@
+package io.alpaca.models;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A directory of the path of a manifest entry, stored as its name and a pointer to its parent directory.
+ * <p/>
+ * Nodes are interned, so the directories shared by many entries, e.g. the temp dir of a scan or the WEB-INF/lib of a war,
+ * are stored once, and two paths are in the same directory if and only if they have the same node.
+ */
+final class PathNode {
+
+    private static final Interner<PathNode> NODES = Interners.newWeakInterner();
+
+    private static final char SEPARATOR = '/';
+
+    private final PathNode parent;
+
+    private final String name;
+
+    // 1 for a root directory
+    private final int depth;
+
+    private final int hash;
+
+    private PathNode(final PathNode parent, final String name) {
+        this.parent = parent;
+        this.name = name;
+        this.depth = parent != null ? parent.depth + 1 : 1;
+        this.hash = (parent != null ? parent.hash * 31 : 0) + name.hashCode();
+    }
+
+    /**
+     * The interned node of the directory, e.g. /tmp/app.war!/WEB-INF/lib
+     */
+    static PathNode of(final String directory) {
+        PathNode node = null;
+        int start = 0;
+        while (true) {
+            final int slash = directory.indexOf(SEPARATOR, start);
+            node = NODES.intern(new PathNode(node, slash < 0 ? directory.substring(start) : directory.substring(start, slash)));
+            if (slash < 0) {
+                return node;
+            }
+            start = slash + 1;
+        }
+    }
+
+    /**
+     * The path of the file of the given name in this directory
+     */
+    String resolve(final String fileName) {
+        final StringBuilder path = new StringBuilder(length() + 1 + fileName.length());
+        appendTo(path);
+        return path.append(SEPARATOR).append(fileName).toString();
+    }
+
+    /**
+     * Compare two paths in different directories like their strings, without building them: from the directories where the
+     * paths part, found by walking up from both until they have the same parent.
+     */
+    static int compare(final PathNode aDirectory, final String aName, final PathNode bDirectory, final String bName) {
+        PathNode a = aDirectory;
+        PathNode b = bDirectory;
+        PathNode aChild = null;
+        PathNode bChild = null;
+        while (a.depth > b.depth) {
+            aChild = a;
+            a = a.parent;
+        }
+        while (b.depth > a.depth) {
+            bChild = b;
+            b = b.parent;
+        }
+        if (a == b) {
+            // one directory is in the other, or they are the same
+            if (aChild == null && bChild == null) {
+                return compareNames(aName, false, bName, false);
+            }
+            return aChild == null ? compareNames(aName, false, bChild.name, true) : compareNames(aChild.name, true, bName, false);
+        }
+        while (a.parent != b.parent) {
+            a = a.parent;
+            b = b.parent;
+        }
+        return compareNames(a.name, true, b.name, true);
+    }
+
+    /**
+     * Compare two names like the rest of their paths, a name followed by more of its path continues with a separator
+     */
+    private static int compareNames(final String a, final boolean aContinues, final String b, final boolean bContinues) {
+        final int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            final char aChar = a.charAt(i);
+            final char bChar = b.charAt(i);
+            if (aChar != bChar) {
+                return aChar - bChar;
+            }
+        }
+        final int aNext = a.length() > length ? a.charAt(length) : aContinues ? SEPARATOR : -1;
+        final int bNext = b.length() > length ? b.charAt(length) : bContinues ? SEPARATOR : -1;
+        return aNext - bNext;
+    }
+
+    private int length() {
+        return parent != null ? parent.length() + 1 + name.length() : name.length();
+    }
+
+    private void appendTo(final StringBuilder path) {
+        if (parent != null) {
+            parent.appendTo(path);
+            path.append(SEPARATOR);
+        }
+        path.append(name);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final PathNode that = (PathNode) o;
+        // parents are interned
+        return hash == that.hash && parent == that.parent && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder path = new StringBuilder(length());
+        appendTo(path);
+        return path.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static io.alpaca.TestArchives.manifests;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AlpacaTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("Nested archives in memory")
+    public void testInMemory() throws Exception {
+        final Path war = tmpDir.resolve("app.war");
+        try (OutputStream output = Files.newOutputStream(war);
+             ZipOutputStream zip = new ZipOutputStream(output)) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/lib/guice-4.0.jar"));
+            Files.copy(guiceJar(), zip);
+            zip.closeEntry();
+        }
+
+        final Set<ManifestEntry> extracted = Alpaca.scanManifestEntry("", "", war, new ScanOptions());
+        final Set<ManifestEntry> inMemory = Alpaca.scanManifestEntry("", "", war, new ScanOptions().setInMemory(true).setSpillThreshold(1024));
+
+        assertEquals(manifests(extracted), manifests(inMemory));
+        assertTrue(manifests(inMemory).contains("pkg:mvn/com.google.inject/guice@4.0.0/guice-4.0.jar"));
+        assertTrue(inMemory.stream().anyMatch(manifestEntry -> manifestEntry.getPath().endsWith("app.war!/WEB-INF/lib/guice-4.0.jar")));
+    }
+
+    @Test
+    @DisplayName("Scan results in a deterministic order")
+    public void testResultOrder() throws Exception {
+        final Path dir = Files.createDirectories(tmpDir.resolve("lib"));
+        for (String name : List.of("c", "a", "d", "b")) {
+            Files.copy(guiceJar(), dir.resolve("guice-" + name + ".jar"));
+        }
+
+        final List<ManifestEntry> first = new ArrayList<>(Alpaca.scanManifestEntry("", "", dir, new ScanOptions().setInMemory(true)));
+        final List<ManifestEntry> second = new ArrayList<>(Alpaca.scanManifestEntry("", "", dir, new ScanOptions().setInMemory(true)));
+
+        assertEquals(4, first.size());
+        assertEquals(first, second);
+        final List<ManifestEntry> sorted = new ArrayList<>(first);
+        sorted.sort(ManifestEntry.ORDER);
+        assertEquals(sorted, first);
+        assertTrue(first.get(0).getPath().endsWith("guice-a.jar"));
+    }
+
+    @Test
+    @DisplayName("Copies of a nested archive keep their own paths")
+    public void testDeduplication() throws Exception {
+        final Path zip = tmpDir.resolve("dist.zip");
+        try (OutputStream output = Files.newOutputStream(zip);
+             ZipOutputStream dist = new ZipOutputStream(output)) {
+            for (String module : List.of("a", "b", "c")) {
+                dist.putNextEntry(new ZipEntry(module + "/guice-4.0.jar"));
+                Files.copy(guiceJar(), dist);
+                dist.closeEntry();
+            }
+        }
+
+        for (ScanOptions options : List.of(new ScanOptions(), new ScanOptions().setInMemory(true))) {
+            final Set<ManifestEntry> manifests = Alpaca.scanManifestEntry("", "", zip, options);
+            assertEquals(3, manifests.size());
+            assertEquals(Set.of("pkg:mvn/com.google.inject/guice@4.0.0/guice-4.0.jar"), manifests(manifests));
+        }
+        final Set<String> paths = Alpaca.scanManifestEntry("", "", zip, new ScanOptions().setInMemory(true)).stream()
+                .map(ManifestEntry::getPath)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of(zip + "!/a/guice-4.0.jar", zip + "!/b/guice-4.0.jar", zip + "!/c/guice-4.0.jar"), paths);
+    }
+}
@@ -1,10 +1,27 @@
 package io.alpaca;
 
+import io.alpaca.models.ManifestEntry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * https://repo1.maven.org/maven2/io/fabric8/kubernetes-openshift-uberjar/4.6.3/kubernetes-openshift-uberjar-4.6.3.jar
@@ -13,6 +30,9 @@ import java.nio.file.Paths;
  */
 public class AppTest {
 
+    @TempDir
+    Path tmpDir;
+
     @Test
     @DisplayName("No pom.xml")
     public void testPomZero() throws Exception {
@@ -22,6 +42,87 @@ public class AppTest {
         App.main(args);
     }
 
+    @Test
+    @DisplayName("Snapshot changes independent of the temp dirs of extracted archives")
+    public void testChanges() throws Exception {
+        final ManifestEntry guice = new ManifestEntry("", "", "com.google.inject", "guice", "4.0", "guice-4.0.jar", "guice",
+                "/tmp/alpaca/1/0d557c1b-e59b-4a65-ae9d-2a0bb9ed0d30/app.war/WEB-INF/lib/guice-4.0.jar", null);
+        final ManifestEntry movedGuice = new ManifestEntry("", "", "com.google.inject", "guice", "4.0", "guice-4.0.jar", "guice",
+                "/tmp/alpaca/2/b4421c8d-dec4-41a4-b2b6-73bccc9ea570/app.war/WEB-INF/lib/guice-4.0.jar", null);
+        final ManifestEntry newGuice = new ManifestEntry("", "", "com.google.inject", "guice", "4.1", "guice-4.1.jar", "guice",
+                "/tmp/alpaca/2/b4421c8d-dec4-41a4-b2b6-73bccc9ea570/app.war/WEB-INF/lib/guice-4.1.jar", null);
+
+        assertTrue(App.changes(Set.of(movedGuice), Set.of(guice)).isEmpty());
+        assertEquals(List.of(newGuice), new ArrayList<>(App.changes(Set.of(movedGuice, newGuice), Set.of(guice))));
+        assertEquals(List.of(guice), new ArrayList<>(App.changes(Set.of(guice), Set.of(newGuice))));
+    }
+
+    @Test
+    @DisplayName("No NDJSON snapshot changes for the same extracted archives")
+    public void testNdjsonSnapshotChanges() throws Exception {
+        final Path war = tmpDir.resolve("app.war");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(war))) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/lib/guice-4.0.jar"));
+            Files.copy(guiceJar(), zip);
+            zip.closeEntry();
+        }
+        final String snapshot = "--snapshot=" + tmpDir.resolve("snapshot.bin");
+
+        // the war and the jar extracted from it, added by the first scan, then at new temp paths on the second one
+        final String first = run("manifest", "--format=ndjson", snapshot, war.toString())[0];
+        assertEquals(2, first.split("\"change\":\"added\"", -1).length - 1, first);
+        final String second = run("manifest", "--format=ndjson", snapshot, war.toString())[0];
+        assertTrue(second.contains("guice-4.0.jar"), second);
+        assertFalse(second.contains("\"change\""), second);
+    }
+
+    @Test
+    @DisplayName("Usage without arguments")
+    public void testNoArguments() throws Exception {
+        final String[] output = run();
+        assertTrue(output[0].startsWith("Usage: "), output[0]);
+    }
+
+    @Test
+    @DisplayName("Batch options without a per job output rejected")
+    public void testBatchUnsupportedOptions() throws Exception {
+        final String[] cycloneDx = run("batch", "--format=cyclonedx", "jobs.txt");
+        assertEquals("", cycloneDx[0]);
+        assertTrue(cycloneDx[1].contains("--format=cyclonedx"), cycloneDx[1]);
+        final String[] snapshot = run("batch", "--snapshot=snapshot.bin", "jobs.txt");
+        assertEquals("", snapshot[0]);
+        assertTrue(snapshot[1].contains("--snapshot="), snapshot[1]);
+    }
+
+    @Test
+    @DisplayName("Usage for index, lookup and serve without their own arguments")
+    public void testCommandArguments() throws Exception {
+        for (String[] args : List.of(new String[]{"index", "pom.xml"}, new String[]{"index"}, new String[]{"lookup", "classes.idx"},
+                new String[]{"serve", "foo"})) {
+            final String[] output = run(args);
+            assertTrue(output[0].startsWith("Usage: "), String.join(" ", args) + ": " + output[0]);
+        }
+    }
+
+    /**
+     * Run the app with the arguments and return what it printed to stdout and stderr
+     */
+    private static String[] run(final String... args) {
+        final PrintStream out = System.out;
+        final PrintStream err = System.err;
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(stdout, true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(stderr, true, StandardCharsets.UTF_8));
+            App.main(args);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        return new String[]{stdout.toString(StandardCharsets.UTF_8), stderr.toString(StandardCharsets.UTF_8)};
+    }
+
 //    @Test
 //    @DisplayName("bundled jar")
 //    public void testBundledJar() throws Exception {
@@ -0,0 +1,70 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static io.alpaca.TestArchives.jar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ArchiveFingerprintTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testArchiveFingerprint() throws Exception {
+        final String fingerprint = ArchiveFingerprint.of(guiceJar());
+        for (ScanOptions options : List.of(new ScanOptions(), new ScanOptions().setInMemory(true))) {
+            final Set<ManifestEntry> manifests = Alpaca.scanManifestEntry("", "", guiceJar(), options);
+            assertEquals(fingerprint, manifests.iterator().next().getFingerprint());
+        }
+
+        // Same entries in another order, with another compression and with a launch script in front
+        jar(tmpDir.resolve("a.jar"), "a.txt", "a", "b/", "", "b/b.txt", "b");
+        jar(tmpDir.resolve("b.jar"), "b/b.txt", "b", "a.txt", "a", "b/", "");
+        final Path prefixed = tmpDir.resolve("prefixed.jar");
+        Files.write(prefixed, "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(prefixed, Files.readAllBytes(tmpDir.resolve("a.jar")), StandardOpenOption.APPEND);
+        assertEquals(ArchiveFingerprint.of(tmpDir.resolve("a.jar")), ArchiveFingerprint.of(tmpDir.resolve("b.jar")));
+        assertEquals(ArchiveFingerprint.of(tmpDir.resolve("a.jar")), ArchiveFingerprint.of(prefixed));
+        jar(tmpDir.resolve("c.jar"), "a.txt", "c", "b/", "", "b/b.txt", "b");
+        assertNotEquals(ArchiveFingerprint.of(tmpDir.resolve("a.jar")), ArchiveFingerprint.of(tmpDir.resolve("c.jar")));
+
+        // ZIP64 end of central directory, written for more than 65535 entries
+        final Path zip64 = tmpDir.resolve("zip64.zip");
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(zip64));
+             ZipOutputStream zip = new ZipOutputStream(output)) {
+            for (int i = 0; i < 70000; i++) {
+                final ZipEntry entry = new ZipEntry("e" + i);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(0);
+                entry.setCrc(0);
+                zip.putNextEntry(entry);
+                zip.closeEntry();
+            }
+        }
+        try (ZipFile zipFile = new ZipFile(zip64.toFile())) {
+            assertEquals(ArchiveFingerprint.of(zipFile), ArchiveFingerprint.of(zip64));
+        }
+
+        final Path text = Files.writeString(tmpDir.resolve("a.txt"), "not a zip file");
+        assertThrows(ZipException.class, () -> ArchiveFingerprint.of(text));
+    }
+}
@@ -0,0 +1,33 @@
+package io.alpaca;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchiveTypeTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("Archive type from the first bytes")
+    public void testArchiveType() throws Exception {
+        assertEquals(ArchiveType.ZIP, ArchiveType.of(guiceJar()));
+        assertEquals(ArchiveType.GZIP, ArchiveType.of(new byte[]{0x1f, (byte) 0x8b, 8, 0}, 4));
+        final byte[] tar = new byte[ArchiveType.HEADER_SIZE];
+        System.arraycopy("ustar".getBytes(StandardCharsets.US_ASCII), 0, tar, 257, 5);
+        assertEquals(ArchiveType.TAR, ArchiveType.of(tar, tar.length));
+
+        final Path script = Files.writeString(tmpDir.resolve("app.js"), "var alpaca = 1;");
+        assertEquals(ArchiveType.UNKNOWN, ArchiveType.of(script));
+        assertTrue(Alpaca.scanManifestEntry(script).isEmpty());
+    }
+}
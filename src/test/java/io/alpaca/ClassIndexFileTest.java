@@ -0,0 +1,34 @@
+package io.alpaca;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static io.alpaca.TestArchives.manifests;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ClassIndexFileTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testClassIndexFile() throws Exception {
+        final ClassIndex classIndex = Alpaca.scanClasses(guiceJar());
+        final Path indexFile = tmpDir.resolve("classes.idx");
+        ClassIndexFile.write(classIndex, indexFile);
+
+        try (ClassIndexFile index = ClassIndexFile.open(indexFile)) {
+            assertEquals(classIndex.size(), index.size());
+            classIndex.forEach(classEntries -> assertEquals(classEntries, index.lookup(classEntries.getFqcn())));
+            assertEquals(Set.of("pkg:mvn/com.google.inject/guice@4.0.0/guice-4.0.jar"),
+                    manifests(index.lookup("com.google.inject.Guice").getManifests()));
+            assertEquals(Set.of(), index.lookup("com.google.inject.Guic").getManifests());
+            assertEquals(Set.of(), index.lookup("com.google.inject.Guicee").getManifests());
+            assertEquals(Set.of(), index.lookup("").getManifests());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static io.alpaca.TestArchives.manifests;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClassIndexTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testClassIndex() throws Exception {
+        final Path zip = tmpDir.resolve("classes.zip");
+        try (OutputStream output = Files.newOutputStream(zip);
+             ZipOutputStream dist = new ZipOutputStream(output)) {
+            for (String module : List.of("a", "b")) {
+                dist.putNextEntry(new ZipEntry(module + "/guice-4.0.jar"));
+                Files.copy(guiceJar(), dist);
+                dist.closeEntry();
+            }
+        }
+
+        for (ScanOptions options : List.of(new ScanOptions(), new ScanOptions().setInMemory(true))) {
+            final ClassIndex classIndex = Alpaca.scanClasses("", "", zip, options);
+            final Set<ManifestEntry> manifests = classIndex.getManifests("com.google.inject.Guice");
+            assertEquals(2, manifests.size());
+            assertEquals(Set.of("pkg:mvn/com.google.inject/guice@4.0.0/guice-4.0.jar"), manifests(manifests));
+            assertEquals(2, classIndex.getManifests("com.google.inject.internal.util.Stopwatch").size());
+            assertEquals(Set.of(), classIndex.getManifests("com.google.inject.Missing"));
+            assertEquals(Set.of(), classIndex.getManifests("Guice"));
+
+            final Set<String> classNames = new TreeSet<>();
+            classIndex.forEach(classEntries -> classNames.add(classEntries.getFqcn()));
+            assertEquals(classIndex.size(), classNames.size());
+            assertTrue(classNames.contains("com.google.inject.Guice"));
+            assertTrue(classNames.stream().noneMatch(className -> className.contains("/") || className.endsWith("-info")));
+            assertNull(options.getClassIndex());
+        }
+    }
+}
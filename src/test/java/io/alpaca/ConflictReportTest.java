@@ -0,0 +1,39 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.alpaca.TestArchives.jar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ConflictReportTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testConflicts() throws Exception {
+        final Path dir = Files.createDirectories(tmpDir.resolve("conflicts"));
+        jar(dir.resolve("a.jar"), "com/example/Same.class", "same", "com/example/Changed.class", "a", "com/example/a/A.class", "a");
+        jar(dir.resolve("b.jar"), "com/example/Same.class", "same", "com/example/Changed.class", "b");
+        jar(dir.resolve("c.jar"), "org/example/C.class", "c");
+
+        for (ScanOptions options : List.of(new ScanOptions(), new ScanOptions().setInMemory(true))) {
+            final ConflictReport report = Alpaca.scanConflicts("", "", dir, options);
+            final List<String> duplicates = report.getDuplicateClasses().stream()
+                    .map(duplicate -> duplicate.getFqcn() + " " + duplicate.isIdentical() + " " + duplicate.getManifests().stream()
+                            .map(ManifestEntry::getJarFileName).sorted().collect(Collectors.joining(",")))
+                    .collect(Collectors.toList());
+            assertEquals(List.of("com.example.Changed false a.jar,b.jar", "com.example.Same true a.jar,b.jar"), duplicates);
+            assertEquals(List.of("com.example"), report.getSplitPackages().stream()
+                    .map(ConflictReport.SplitPackage::getName)
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CycloneDxWriterTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("CycloneDX SBOM")
+    public void testCycloneDx() throws Exception {
+        final Path dir = Files.createDirectories(tmpDir.resolve("product"));
+        final Path zip = dir.resolve("dist.zip");
+        try (ZipOutputStream dist = new ZipOutputStream(Files.newOutputStream(zip))) {
+            dist.putNextEntry(new ZipEntry("app.war"));
+            dist.write(war());
+            dist.closeEntry();
+        }
+
+        final boolean[] closed = new boolean[1];
+        final ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        try (CycloneDxWriter writer = new CycloneDxWriter(output, "product", "1.0")) {
+            Alpaca.scanManifestEntry("product", "1.0", dir, new ScanOptions().setInMemory(true), writer);
+        }
+        assertFalse(closed[0]);
+        final String bom = output.toString(StandardCharsets.UTF_8);
+        final String war = zip + "!/app.war";
+        final String guice = war + "!/WEB-INF/lib/guice-4.0.jar";
+
+        assertTrue(bom.startsWith("{\"bomFormat\":\"CycloneDX\",\"specVersion\":\"1.5\","));
+        assertTrue(bom.contains("\"component\":{\"type\":\"application\",\"name\":\"product\",\"version\":\"1.0\"}"));
+        // the war, which has no Maven coordinates, and the jar in it
+        assertTrue(bom.contains("{\"type\":\"library\",\"name\":\"app.war\",\"bom-ref\":\"" + war + "\","));
+        assertTrue(bom.contains("{\"type\":\"library\",\"group\":\"com.google.inject\",\"name\":\"guice\",\"version\":\"4.0.0\","
+                + "\"purl\":\"pkg:maven/com.google.inject/guice@4.0.0\",\"bom-ref\":\"" + guice + "\","
+                + "\"properties\":[{\"name\":\"alpaca:path\",\"value\":\"" + guice + "\"}"));
+        // the zip file, which has no manifest entry, at the end of the components
+        assertTrue(bom.contains("{\"type\":\"file\",\"bom-ref\":\"" + zip + "\",\"name\":\"dist.zip\","
+                + "\"properties\":[{\"name\":\"alpaca:path\",\"value\":\"" + zip + "\"}]}],"));
+        assertTrue(bom.endsWith(",\"dependencies\":[{\"ref\":\"" + zip + "\",\"dependsOn\":[\"" + war + "\"]},"
+                + "{\"ref\":\"" + war + "\",\"dependsOn\":[\"" + guice + "\"]}]}\n"));
+    }
+
+    @Test
+    @DisplayName("CycloneDX components written while their archive is scanned")
+    public void testCycloneDxStreaming() throws Exception {
+        final Path war = Files.write(tmpDir.resolve("app.war"), war());
+
+        // the output when each entry is found, and whether the scan was done then
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Map<String, String> written = new ConcurrentHashMap<>();
+        final AtomicReference<CompletableFuture<?>> scan = new AtomicReference<>();
+        final Map<String, Boolean> scanDone = new ConcurrentHashMap<>();
+        final ScanOptions options = new ScanOptions().setInMemory(true);
+        try (CycloneDxWriter writer = new CycloneDxWriter(output, "", "");
+             ScanScheduler scheduler = ScanScheduler.create(options)) {
+            final ManifestScanner scanner = new ManifestScanner("", "", options, scheduler, manifestEntry -> {
+                writer.accept(manifestEntry);
+                written.put(manifestEntry.getJarFileName(), output.toString(StandardCharsets.UTF_8));
+                scanDone.put(manifestEntry.getJarFileName(), scan.get() != null && scan.get().isDone());
+            });
+            final CompletableFuture<Set<ManifestEntry>> scanned = scanner.scan(war);
+            scan.set(scanned);
+            assertTrue(scanned.join().isEmpty());
+        }
+
+        assertEquals(Map.of("app.war", false, "guice-4.0.jar", false), scanDone);
+        assertTrue(written.get("guice-4.0.jar").contains("\"bom-ref\":\"" + war + "!/WEB-INF/lib/guice-4.0.jar\""));
+        assertTrue(written.get("app.war").contains("\"bom-ref\":\"" + war + "\""));
+    }
+
+    /**
+     * A war with the guice jar in it
+     */
+    private static byte[] war() throws Exception {
+        final ByteArrayOutputStream war = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(war)) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/lib/guice-4.0.jar"));
+            Files.copy(guiceJar(), zip);
+            zip.closeEntry();
+        }
+        return war.toByteArray();
+    }
+}
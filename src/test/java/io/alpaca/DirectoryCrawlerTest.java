@@ -0,0 +1,66 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectoryCrawlerTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("Excluded directories are pruned")
+    public void testExcludes() throws Exception {
+        Files.createDirectories(tmpDir.resolve("lib"));
+        Files.createDirectories(tmpDir.resolve("web/node_modules/guice"));
+        Files.copy(guiceJar(), tmpDir.resolve("lib/guice-4.0.jar"));
+        Files.copy(guiceJar(), tmpDir.resolve("web/node_modules/guice/guice-4.0.jar"));
+
+        assertEquals(2, Alpaca.scanManifestEntry("", "", tmpDir, new ScanOptions()).size());
+        final Set<ManifestEntry> pruned = Alpaca.scanManifestEntry("", "", tmpDir,
+                new ScanOptions().setExcludes(List.of("node_modules")).setIncludes(List.of("*.jar")));
+        assertEquals(1, pruned.size());
+        assertTrue(pruned.iterator().next().getPath().endsWith("lib/guice-4.0.jar"));
+        assertTrue(Alpaca.scanManifestEntry("", "", tmpDir, new ScanOptions().setMinFileSize(Long.MAX_VALUE)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Directories excluded in any case or with their whole content are pruned")
+    public void testExcludedDirectories() throws Exception {
+        Files.createDirectories(tmpDir.resolve(".GIT"));
+        Files.createDirectories(tmpDir.resolve("build/libs"));
+        Files.createDirectories(tmpDir.resolve("lib"));
+        Files.copy(guiceJar(), tmpDir.resolve(".GIT/guice-4.0.jar"));
+        Files.copy(guiceJar(), tmpDir.resolve("build/libs/guice-4.0.jar"));
+        Files.copy(guiceJar(), tmpDir.resolve("lib/guice-4.0.jar"));
+
+        // a task per listed directory: the scanned one and lib
+        final AtomicInteger directories = new AtomicInteger();
+        final List<String> files = new ArrayList<>();
+        final ScanOptions options = new ScanOptions().setExcludes(List.of(ScanOptions.DEFAULT_EXCLUDES.get(0), "build/**"));
+        DirectoryCrawler.crawl(tmpDir, options, command -> {
+            directories.incrementAndGet();
+            command.run();
+        }, (file, attributes) -> files.add(tmpDir.relativize(file).toString())).join();
+        assertEquals(2, directories.get());
+        assertEquals(List.of("lib" + File.separator + "guice-4.0.jar"), files);
+
+        final Set<ManifestEntry> pruned = Alpaca.scanManifestEntry("", "", tmpDir, options);
+        assertEquals(1, pruned.size());
+        assertTrue(pruned.iterator().next().getPath().endsWith("lib/guice-4.0.jar"));
+    }
+}
@@ -0,0 +1,65 @@
+package io.alpaca;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static io.alpaca.TestArchives.jar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class JarIndexTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("Jar entries classified in one pass")
+    public void testJarIndex() throws Exception {
+        jar(tmpDir.resolve("app.jar"), "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n",
+                "META-INF/build.metadata", "",
+                "META-INF/maven/com.example/app/pom.xml", "<project/>",
+                "META-INF/maven/com.example/app/pom.properties", "version=1.0",
+                "META-INF/maven/com.example/lib/pom.xml", "<project/>",
+                "META-INF/maven/pom.xml", "<project/>",
+                "META-INF/lib/nested.jar", "jar", "lib/nested.war", "war", "lib/dist.tar.gz", "tgz",
+                "com/example/App.class", "class", "com/example/", "", "logo.png", "png");
+
+        try (ZipFile zipFile = new ZipFile(tmpDir.resolve("app.jar").toFile())) {
+            final JarIndex index = JarIndex.of(zipFile);
+            assertEquals("META-INF/MANIFEST.MF", index.getManifest().getName());
+            assertEquals("META-INF/build.metadata", index.getBuildMetadata().getName());
+            assertEquals(List.of("META-INF/maven/com.example/app/pom.xml", "META-INF/maven/com.example/lib/pom.xml"), names(index.getPomFiles()));
+            assertEquals("META-INF/maven/com.example/app/pom.properties", index.getPomProperties(index.getPomFiles().get(0)).getName());
+            assertNull(index.getPomProperties(index.getPomFiles().get(1)));
+            assertEquals(List.of("META-INF/lib/nested.jar", "lib/nested.war", "lib/dist.tar.gz"), names(index.getNestedArchives()));
+            assertEquals(List.of("com/example/App.class"), names(index.getClasses()));
+        }
+    }
+
+    @Test
+    public void testSelectiveExtraction() throws Exception {
+        jar(tmpDir.resolve("app.jar"), "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n",
+                "META-INF/maven/com.example/app/pom.xml", "<project/>",
+                "META-INF/maven/com.example/app/pom.properties", "version=1.0",
+                "com/example/App.class", "class", "logo.png", "png", "lib/nested.jar", "jar");
+        final Path targetDir = tmpDir.resolve("extracted");
+        final Set<String> extracted = Utils.decompressArchive(tmpDir.resolve("app.jar"), targetDir.toString(), ArchiveType.ZIP, JarIndex::isNestedArchive);
+        final Path jarDir = targetDir.resolve("app.jar");
+        assertEquals(Set.of("lib/nested.jar"), extracted.stream()
+                .map(file -> jarDir.relativize(Paths.get(file)).toString().replace('\\', '/'))
+                .collect(Collectors.toSet()));
+    }
+
+    private static List<String> names(final List<ZipArchiveEntry> entries) {
+        return entries.stream().map(ZipArchiveEntry::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,75 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static io.alpaca.TestArchives.tarGz;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ManifestScannerTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("Tar readers ahead of a single thread scan the archives themselves")
+    public void testReadAhead() throws Exception {
+        // A tar.gz file with jars and a tar.gz file in it, with more jars than threads and read ahead permits
+        final byte[] guice = Files.readAllBytes(guiceJar());
+        final Path inner = tmpDir.resolve("inner.tar.gz");
+        tarGz(inner, "lib/guice-a.jar", guice, "lib/guice-b.jar", guice);
+        tarGz(tmpDir.resolve("dist.tar.gz"), "lib/guice-c.jar", guice, "lib/guice-d.jar", guice,
+                "inner.tar.gz", Files.readAllBytes(inner), "lib/guice-e.jar", guice);
+
+        for (ScanOptions options : List.of(new ScanOptions(), new ScanOptions().setInMemory(true))) {
+            options.setIoParallelism(1).setCpuParallelism(1).setMaxOpenArchives(1).setReadAhead(1);
+            final Set<ManifestEntry> manifests = assertTimeoutPreemptively(Duration.ofMinutes(1),
+                    () -> Alpaca.scanManifestEntry("", "", tmpDir.resolve("dist.tar.gz"), options));
+            assertEquals(5, manifests.size());
+        }
+    }
+
+    @Test
+    @DisplayName("A scan streaming to a listener collects no entries")
+    public void testListenerNoResults() throws Exception {
+        final Path zip = tmpDir.resolve("dist.zip");
+        try (OutputStream output = Files.newOutputStream(zip);
+             ZipOutputStream dist = new ZipOutputStream(output)) {
+            for (String module : List.of("a", "b", "c")) {
+                dist.putNextEntry(new ZipEntry(module + "/guice-4.0.jar"));
+                Files.copy(guiceJar(), dist);
+                dist.closeEntry();
+            }
+        }
+
+        for (ScanOptions options : List.of(new ScanOptions(), new ScanOptions().setInMemory(true))) {
+            final Set<ManifestEntry> streamed = ConcurrentHashMap.newKeySet();
+            try (ScanScheduler scheduler = ScanScheduler.create(options)) {
+                final ManifestScanner scanner = new ManifestScanner("", "", options, scheduler, streamed::add);
+                assertFalse(scanner.collects());
+                assertTrue(scanner.scan(zip).join().isEmpty());
+            }
+            assertEquals(3, streamed.size());
+        }
+        try (ScanScheduler scheduler = ScanScheduler.create(new ScanOptions())) {
+            assertTrue(new ManifestScanner("", "", new ScanOptions().setSnapshot(ScanSnapshot.load(tmpDir.resolve("snapshot"))), scheduler, manifestEntry -> {
+            }).collects());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.alpaca;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static io.alpaca.TestArchives.jar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedZipFileTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testMappedZipFile() throws Exception {
+        jar(tmpDir.resolve("a.jar"), "a.txt", "a", "b/", "", "b/b.txt", "b".repeat(10000));
+        final Path prefixed = tmpDir.resolve("prefixed.jar");
+        Files.write(prefixed, "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(prefixed, Files.readAllBytes(tmpDir.resolve("a.jar")), StandardOpenOption.APPEND);
+        // ZIP64 extra fields in every header, stored and deflated
+        final Path zip64 = tmpDir.resolve("zip64.zip");
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(zip64.toFile())) {
+            zip.setUseZip64(Zip64Mode.Always);
+            for (String name : List.of("a.txt", "b/b.txt")) {
+                final ZipArchiveEntry entry = new ZipArchiveEntry(name);
+                final byte[] content = (name.equals("a.txt") ? "a" : "b".repeat(10000)).getBytes(StandardCharsets.UTF_8);
+                if (name.equals("a.txt")) {
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(content.length);
+                    final CRC32 crc = new CRC32();
+                    crc.update(content);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putArchiveEntry(entry);
+                zip.write(content);
+                zip.closeArchiveEntry();
+            }
+        }
+
+        for (Path file : List.of(tmpDir.resolve("a.jar"), prefixed, zip64)) {
+            try (MappedZipFile zipFile = MappedZipFile.open(file)) {
+                final List<String> contents = new ArrayList<>();
+                for (MappedZipFile.Entry entry : zipFile.getEntries()) {
+                    if (!entry.isDirectory()) {
+                        try (InputStream input = zipFile.getInputStream(entry)) {
+                            contents.add(entry.getName() + "=" + new String(input.readAllBytes(), StandardCharsets.UTF_8).length());
+                        }
+                    }
+                }
+                assertEquals(List.of("a.txt=1", "b/b.txt=10000"), contents, file.toString());
+            }
+            final Set<String> unzipped = Utils.unzip(tmpDir.resolve("unzipped").toString(), file);
+            assertEquals(2, unzipped.size(), file.toString());
+        }
+
+        final Path text = Files.writeString(tmpDir.resolve("a.txt"), "not a zip file");
+        assertThrows(ZipException.class, () -> MappedZipFile.open(text));
+    }
+
+    @Test
+    public void testMappedZipFileNames() throws Exception {
+        final Path zip = tmpDir.resolve("names.zip");
+        try (ZipArchiveOutputStream output = new ZipArchiveOutputStream(zip.toFile())) {
+            // without the UTF-8 flag, e.g. zipped on Windows, then with it
+            output.setEncoding("IBM437");
+            output.setUseLanguageEncodingFlag(false);
+            output.putArchiveEntry(new ZipArchiveEntry("caf\u00e9.txt"));
+            output.closeArchiveEntry();
+            output.setEncoding("UTF-8");
+            output.setUseLanguageEncodingFlag(true);
+            output.putArchiveEntry(new ZipArchiveEntry("\u00fcber.txt"));
+            output.closeArchiveEntry();
+        }
+
+        try (MappedZipFile zipFile = MappedZipFile.open(zip)) {
+            final List<String> names = new ArrayList<>();
+            zipFile.getEntries().forEach(entry -> names.add(entry.getName()));
+            assertEquals(List.of("caf\u00e9.txt", "\u00fcber.txt"), names);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NdjsonWriterTest {
+
+    @Test
+    @DisplayName("Closing the writer leaves its output open")
+    public void testClose() throws Exception {
+        final boolean[] closed = new boolean[1];
+        final ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        try (NdjsonWriter writer = new NdjsonWriter(output)) {
+            writer.acceptChange("added", new ManifestEntry("", "", "com.google.inject", "guice", "4.0", "guice-4.0.jar", "guice",
+                    "/tmp/guice-4.0.jar", null));
+        }
+
+        assertFalse(closed[0]);
+        // flushed
+        assertTrue(output.toString(StandardCharsets.UTF_8).startsWith("{\"change\":\"added\","));
+    }
+}
@@ -0,0 +1,97 @@
+package io.alpaca;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PomInfoTest {
+
+    @Test
+    @DisplayName("POM coordinates inherited from the parent")
+    public void testPomInfo() throws Exception {
+        final String pom = "<project><modelVersion>4.0.0</modelVersion>"
+                + "<parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>1.2.3</version></parent>"
+                + "<artifactId> child </artifactId><name>${project.artifactId}</name>"
+                + "<dependencies><dependency><groupId>other</groupId><artifactId>other</artifactId><version>9</version></dependency></dependencies>"
+                + "</project>";
+        final PomInfo pomInfo = PomInfo.readPom(new ByteArrayInputStream(pom.getBytes(StandardCharsets.UTF_8)));
+
+        assertNull(pomInfo.getGroupId());
+        assertEquals("org.example", pomInfo.getParentGroupId());
+        assertEquals("child", pomInfo.getArtifactId());
+        assertEquals("1.2.3", pomInfo.getVersion());
+        assertEquals("${project.artifactId}", pomInfo.getName());
+    }
+
+    @Test
+    @DisplayName("POM coordinates after the other sections")
+    public void testPomInfoCoordinatesLast() throws Exception {
+        final String pom = "<project><modelVersion>4.0.0</modelVersion>"
+                + "<parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>1.2.3</version></parent>"
+                + "<properties><java.version>11</java.version></properties>"
+                + "<dependencies><dependency><groupId>other</groupId><artifactId>other</artifactId><version>9</version></dependency></dependencies>"
+                + "<groupId>org.example.child</groupId><artifactId>child</artifactId><version>2.0</version><name>Child</name>"
+                + "<build><finalName>child</finalName></build>"
+                + "</project>";
+        final PomInfo pomInfo = PomInfo.readPom(new ByteArrayInputStream(pom.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("org.example.child", pomInfo.getGroupId());
+        assertEquals("child", pomInfo.getArtifactId());
+        assertEquals("2.0", pomInfo.getVersion());
+        assertEquals("Child", pomInfo.getName());
+    }
+
+    @Test
+    @DisplayName("POM without parent read up to its coordinates")
+    public void testPomInfoWithoutParent() throws Exception {
+        // the rest of the document is not well formed, so it is only valid if the reading stops at the coordinates
+        final String pom = "<project><modelVersion>4.0.0</modelVersion>"
+                + "<groupId>org.example</groupId><artifactId>lib</artifactId><version>1.0</version><name>Lib</name>"
+                + "<dependencies><dependency></project>";
+        final PomInfo pomInfo = PomInfo.readPom(new ByteArrayInputStream(pom.getBytes(StandardCharsets.UTF_8)));
+
+        assertFalse(pomInfo.hasParent());
+        assertEquals("org.example", pomInfo.getGroupId());
+        assertEquals("lib", pomInfo.getArtifactId());
+        assertEquals("1.0", pomInfo.getVersion());
+        assertEquals("Lib", pomInfo.getName());
+    }
+
+    @Test
+    @DisplayName("POM inheriting its groupId read up to its coordinates")
+    public void testPomInfoInheritedGroupId() throws Exception {
+        // the rest of the document is not well formed, so it is only valid if the reading stops at the coordinates
+        final String pom = "<project><modelVersion>4.0.0</modelVersion>"
+                + "<parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>1.2.3</version></parent>"
+                + "<artifactId>child</artifactId><name>Child</name>"
+                + "<dependencies><dependency></project>";
+        final PomInfo pomInfo = PomInfo.readPom(new ByteArrayInputStream(pom.getBytes(StandardCharsets.UTF_8)));
+
+        assertNull(pomInfo.getGroupId());
+        assertEquals("org.example", pomInfo.getParentGroupId());
+        assertEquals("child", pomInfo.getArtifactId());
+        assertEquals("1.2.3", pomInfo.getVersion());
+        assertEquals("Child", pomInfo.getName());
+    }
+
+    @Test
+    @DisplayName("POM without name read up to the sections after its coordinates")
+    public void testPomInfoWithoutName() throws Exception {
+        // the rest of the document is not well formed, so it is only valid if the reading stops at <dependencies>
+        final String pom = "<project><modelVersion>4.0.0</modelVersion>"
+                + "<groupId>org.example</groupId><artifactId>lib</artifactId><version>1.0</version><packaging>jar</packaging>"
+                + "<dependencies><dependency></project>";
+        final PomInfo pomInfo = PomInfo.readPom(new ByteArrayInputStream(pom.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("org.example", pomInfo.getGroupId());
+        assertEquals("lib", pomInfo.getArtifactId());
+        assertEquals("1.0", pomInfo.getVersion());
+        assertNull(pomInfo.getName());
+    }
+}
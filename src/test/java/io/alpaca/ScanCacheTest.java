@@ -0,0 +1,66 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static io.alpaca.TestArchives.paths;
+import static io.alpaca.TestArchives.tarGz;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScanCacheTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("Scan cache hit")
+    public void testScanCache() throws Exception {
+        final ScanCache cache = ScanCache.open(tmpDir.resolve("cache"), ScanCache.DEFAULT_MAX_SIZE);
+        final ScanOptions options = new ScanOptions().setInMemory(true).setCache(cache);
+
+        final Set<ManifestEntry> scanned = Alpaca.scanManifestEntry("product", "1.0", guiceJar(), options);
+        final Set<ManifestEntry> cached = Alpaca.scanManifestEntry("product", "1.0", guiceJar(), options);
+
+        assertEquals(scanned, cached);
+        assertEquals(1, Files.list(tmpDir.resolve("cache")).filter(Files::isDirectory).count());
+    }
+
+    @Test
+    @DisplayName("Scan cache hit of extracted archives")
+    public void testScanCacheExtracted() throws Exception {
+        final Path war = tmpDir.resolve("app.war");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(war))) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/lib/guice-4.0.jar"));
+            Files.copy(guiceJar(), zip);
+            zip.closeEntry();
+        }
+        final Path dist = tmpDir.resolve("dist.tar.gz");
+        tarGz(dist, "dist/app.war", Files.readAllBytes(war));
+        final ScanOptions options = new ScanOptions().setTmpDir(tmpDir.resolve("extracted").toString())
+                .setCache(ScanCache.open(tmpDir.resolve("cache"), ScanCache.DEFAULT_MAX_SIZE));
+
+        final Set<String> scanned = paths(Alpaca.scanManifestEntry("product", "1.0", dist, options));
+        final Set<String> cached = paths(Alpaca.scanManifestEntry("product", "1.0", dist, options));
+
+        // the same paths in other extraction dirs of this scan
+        final String extractDir = Pattern.quote(tmpDir.resolve("extracted") + File.separator) + "[0-9a-f-]{36}";
+        assertEquals(2, cached.size());
+        assertTrue(cached.stream().noneMatch(scanned::contains));
+        assertTrue(cached.stream().allMatch(path -> path.startsWith(tmpDir.resolve("extracted").toString())));
+        assertEquals(scanned.stream().map(path -> path.replaceAll(extractDir, "")).collect(Collectors.toSet()),
+                cached.stream().map(path -> path.replaceAll(extractDir, "")).collect(Collectors.toSet()));
+    }
+}
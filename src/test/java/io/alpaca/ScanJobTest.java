@@ -0,0 +1,30 @@
+package io.alpaca;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ScanJobTest {
+
+    @Test
+    @DisplayName("Batch job rows")
+    public void testScanJobs() throws Exception {
+        final String rows = "# product rows\nproduct,1.0,/tmp/a,b.jar\nother\t2.0\t/tmp/c.jar\n\n/tmp/d.jar\n";
+        final List<ScanJob> jobs = ScanJob.read(new BufferedReader(new StringReader(rows)), "default", "9");
+
+        assertEquals(3, jobs.size());
+        assertEquals("product:1.0", jobs.get(0).tag());
+        assertEquals(Paths.get("/tmp/a,b.jar"), jobs.get(0).getPath());
+        assertEquals("other:2.0", jobs.get(1).tag());
+        assertEquals(Paths.get("/tmp/c.jar"), jobs.get(1).getPath());
+        assertEquals("default:9", jobs.get(2).tag());
+        assertThrows(IllegalArgumentException.class, () -> ScanJob.read(new BufferedReader(new StringReader("product,/tmp/a.jar")), "", ""));
+    }
+}
@@ -0,0 +1,52 @@
+package io.alpaca;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class ScanSchedulerTest {
+
+    @Test
+    @DisplayName("Open archives capped across both pools")
+    public void testMaxOpenArchives() throws Exception {
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger maxOpen = new AtomicInteger();
+        try (ScanScheduler scheduler = ScanScheduler.create(new ScanOptions().setIoParallelism(8).setCpuParallelism(8).setMaxOpenArchives(2))) {
+            final List<CompletableFuture<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                tasks.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return scheduler.withOpenArchive(() -> {
+                            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                            Thread.sleep(20);
+                            open.decrementAndGet();
+                            return 1;
+                        });
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, i % 2 == 0 ? scheduler.io() : scheduler.cpu()));
+            }
+            assertEquals(16, assertTimeoutPreemptively(Duration.ofMinutes(1),
+                    () -> tasks.stream().mapToInt(CompletableFuture::join).sum()));
+        }
+        assertEquals(2, maxOpen.get());
+    }
+
+    @Test
+    @DisplayName("An archive task runs its own archive tasks on its permit")
+    public void testNestedOpenArchive() throws Exception {
+        try (ScanScheduler scheduler = ScanScheduler.create(new ScanOptions().setMaxOpenArchives(1))) {
+            assertEquals("nested", assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> scheduler.withOpenArchive(() -> scheduler.withOpenArchive(() -> "nested"))));
+        }
+    }
+}
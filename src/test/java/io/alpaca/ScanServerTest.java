@@ -0,0 +1,39 @@
+package io.alpaca;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScanServerTest {
+
+    @Test
+    @DisplayName("Scan server")
+    public void testScanServer() throws Exception {
+        final ScanOptions options = new ScanOptions().setInMemory(true);
+        try (ScanServer server = ScanServer.start(0, options)) {
+            final HttpClient client = HttpClient.newHttpClient();
+            final String scan = "http://127.0.0.1:" + server.getPort() + ScanServer.SCAN_PATH + "?productName=product&path=";
+
+            final HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(scan
+                    + URLEncoder.encode(guiceJar().toString(), StandardCharsets.UTF_8))).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().startsWith("[{\"productName\":\"product\""));
+            assertTrue(response.body().contains("\"jarFileName\":\"guice-4.0.jar\""));
+
+            final HttpResponse<String> missing = client.send(HttpRequest.newBuilder(URI.create(scan + "missing.jar")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, missing.statusCode());
+        }
+        assertNull(options.getScheduler());
+    }
+}
@@ -0,0 +1,52 @@
+package io.alpaca;
+
+import com.google.common.collect.Sets;
+import io.alpaca.models.ManifestEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static io.alpaca.TestArchives.manifests;
+import static io.alpaca.TestArchives.paths;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScanSnapshotTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testSnapshot() throws Exception {
+        final Path dir = Files.createDirectories(tmpDir.resolve("snapshot"));
+        final Path snapshotFile = tmpDir.resolve("snapshot.bin");
+        Files.copy(guiceJar(), dir.resolve("guice-4.0.jar"));
+
+        ScanSnapshot snapshot = ScanSnapshot.load(snapshotFile);
+        Alpaca.scanManifestEntry("", "", dir, new ScanOptions().setSnapshot(snapshot));
+        assertEquals(Set.of(), snapshot.getPreviousManifests());
+        snapshot.save();
+
+        // unchanged
+        snapshot = ScanSnapshot.load(snapshotFile);
+        final Set<ManifestEntry> manifests = Alpaca.scanManifestEntry("", "", dir, new ScanOptions().setSnapshot(snapshot));
+        assertEquals(Set.of("pkg:mvn/com.google.inject/guice@4.0.0/guice-4.0.jar"), manifests(manifests));
+        assertEquals(snapshot.getPreviousManifests(), snapshot.getManifests());
+        snapshot.save();
+
+        // one added, one removed
+        Files.move(dir.resolve("guice-4.0.jar"), dir.resolve("guice.jar"));
+        snapshot = ScanSnapshot.load(snapshotFile);
+        Alpaca.scanManifestEntry("", "", dir, new ScanOptions().setSnapshot(snapshot));
+        assertEquals(Set.of(dir.resolve("guice.jar").toString()), paths(Sets.difference(snapshot.getManifests(), snapshot.getPreviousManifests())));
+        assertEquals(Set.of(dir.resolve("guice-4.0.jar").toString()), paths(Sets.difference(snapshot.getPreviousManifests(), snapshot.getManifests())));
+
+        // another directory does not use the snapshot
+        snapshot = ScanSnapshot.load(snapshotFile);
+        Alpaca.scanManifestEntry("", "", Files.createDirectories(tmpDir.resolve("other")), new ScanOptions().setSnapshot(snapshot));
+        assertEquals(Set.of(), snapshot.getPreviousManifests());
+    }
+}
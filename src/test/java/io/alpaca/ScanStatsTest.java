@@ -0,0 +1,51 @@
+package io.alpaca;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.alpaca.TestArchives.guiceJar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScanStatsTest {
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    @DisplayName("Scan statistics")
+    public void testScanStats() throws Exception {
+        final Path war = tmpDir.resolve("app.war");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(war))) {
+            zip.putNextEntry(new ZipEntry("WEB-INF/lib/guice-4.0.jar"));
+            Files.copy(guiceJar(), zip);
+            zip.closeEntry();
+        }
+
+        for (ScanOptions options : List.of(new ScanOptions(), new ScanOptions().setInMemory(true))) {
+            final ScanStats stats = new ScanStats();
+            Alpaca.scanManifestEntry("", "", war, options.setStats(stats));
+
+            assertEquals(1, stats.getCount(ScanStats.Phase.SCAN));
+            assertEquals(1, stats.getCount(ScanStats.Phase.MANIFEST));
+            assertEquals(Map.of(0, 1L, 1, 1L), stats.getArchivesByDepth());
+            assertTrue(stats.getExtractedBytesOut() >= Files.size(guiceJar()));
+
+            final StringWriter json = new StringWriter();
+            stats.writeJson(json);
+            assertTrue(json.toString().contains("\"manifest\":{\"count\":1,"));
+            final StringWriter prometheus = new StringWriter();
+            stats.writePrometheus(prometheus);
+            assertTrue(prometheus.toString().contains("alpaca_archives_total{depth=\"1\"} 1\n"));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.alpaca;
+
+import io.alpaca.models.ManifestEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archives and assertions shared by the tests
+ */
+final class TestArchives {
+
+    private TestArchives() {
+    }
+
+    static void tarGz(final Path tarGz, final Object... namesAndContents) throws Exception {
+        try (OutputStream output = new GzipCompressorOutputStream(Files.newOutputStream(tarGz));
+             TarArchiveOutputStream tar = new TarArchiveOutputStream(output)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                final byte[] content = (byte[]) namesAndContents[i + 1];
+                final TarArchiveEntry entry = new TarArchiveEntry((String) namesAndContents[i]);
+                entry.setSize(content.length);
+                tar.putArchiveEntry(entry);
+                tar.write(content);
+                tar.closeArchiveEntry();
+            }
+        }
+    }
+
+    static void jar(final Path jar, final String... namesAndContents) throws Exception {
+        try (OutputStream output = Files.newOutputStream(jar);
+             ZipOutputStream zip = new ZipOutputStream(output)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+    }
+
+    static Set<String> paths(final Set<ManifestEntry> manifestEntries) {
+        return manifestEntries.stream().map(ManifestEntry::getPath).collect(Collectors.toSet());
+    }
+
+    static Path guiceJar() throws Exception {
+        return Paths.get(TestArchives.class.getClassLoader().getResource("guice-4.0.jar").toURI());
+    }
+
+    static Set<String> manifests(final Set<ManifestEntry> manifestEntries) {
+        return manifestEntries.stream().map(ManifestEntry::toDeptopiaManifest).collect(Collectors.toCollection(TreeSet::new));
+    }
+}
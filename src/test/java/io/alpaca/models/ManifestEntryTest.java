@@ -0,0 +1,56 @@
+package io.alpaca.models;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ManifestEntryTest {
+
+    @Test
+    @DisplayName("Compact manifest entries")
+    public void testCompactManifestEntry() throws Exception {
+        final ManifestEntry entry = new ManifestEntry("product", "1.0", "com.google.inject", "guice", "4.0", "guice-4.0.jar", "guice",
+                "/tmp/app.war!/WEB-INF/lib/guice-4.0.jar", "META-INF/maven/a/pom.xml:1.0,");
+        assertEquals("/tmp/app.war!/WEB-INF/lib/guice-4.0.jar", entry.getPath());
+        assertEquals("META-INF/maven/a/pom.xml:1.0,", entry.getBundles());
+
+        final ManifestEntry copy = new ManifestEntry(entry);
+        assertEquals(entry, copy);
+        assertEquals(entry.hashCode(), copy.hashCode());
+        copy.setPath(null);
+        assertNull(copy.getPath());
+        assertNotEquals(entry, copy);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(entry);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            final ManifestEntry read = (ManifestEntry) input.readObject();
+            assertEquals(entry, read);
+            assertEquals(entry.getBundles(), read.getBundles());
+        }
+
+        // Paths are ordered like their strings, also across directories
+        final List<String> paths = List.of("/tmp/a/b.jar", "/tmp/a-b/c.jar", "/tmp/a/b/c.jar", "/tmp/ab.jar", "/tmp/a.jar", "a.jar", "/tmp/a/b.jar!/c.jar");
+        final List<ManifestEntry> entries = new ArrayList<>();
+        for (String path : paths) {
+            final ManifestEntry pathEntry = new ManifestEntry(entry);
+            pathEntry.setPath(path);
+            entries.add(pathEntry);
+        }
+        entries.sort(ManifestEntry.ORDER);
+        assertEquals(paths.stream().sorted().collect(Collectors.toList()), entries.stream().map(ManifestEntry::getPath).collect(Collectors.toList()));
+    }
+}